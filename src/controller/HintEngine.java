@@ -0,0 +1,178 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: HintEngine
+ * Description: The HintEngine allows the caller to get the next correct
+ * capture of a position. The Solver runs on its own thread with a time
+ * budget, so the Event Dispatch Thread never waits for it, and a request is
+ * cancelled as soon as the position changes. Answers are cached per position
+ * (bishop square and pawn mask), so asking again is instant.
+ */
+
+package controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
+import model.Solver;
+
+public class HintEngine {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    public static final int notCached = -1; // not solved (yet)
+    public static final int noHint = -2; // every capture loses
+
+    static final long timeBudget = 2_000_000_000L; // ns per request
+    static final int cacheBits = 12; // 4K positions
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // one thread, so the Solver is only used by it
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "chess-hint");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    private final Solver solver = new Solver();
+
+    // bumped by cancel() on the EDT, a request only reports back if it did
+    // not change
+    private volatile int generation = 0;
+
+    // cached positions: pawn mask, bishop + 1 (0 is an empty slot) and the
+    // answer; a collision replaces the old entry
+    private final long[] cachedPawns = new long[1 << cacheBits];
+    private final byte[] cachedBishop = new byte[1 << cacheBits];
+    private final byte[] cachedHint = new byte[1 << cacheBits];
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a HintEngine object
+     * Pre condition: none
+     * Post condition: HintEngine object is created with an empty cache
+     */
+    public HintEngine() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get a cached hint
+     * Pre condition: bishop must be between 0 and 63
+     * Post condition: return the answer if the position was solved before
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return the square to capture, noHint or notCached
+     */
+    public synchronized int getCachedHint(int bishop, long pawns) {
+        int slot = hash(bishop, pawns);
+        if (cachedBishop[slot] != bishop + 1 || cachedPawns[slot] != pawns) {
+            return notCached;
+        }
+        return cachedHint[slot];
+    }
+
+    /**
+     * Description: allow the caller to ask for a hint in the background
+     * Pre condition: bishop must be between 0 and 63
+     * Post condition: the position is solved on the hint thread within the
+     * time budget and the answer is cached; done runs on the Event Dispatch
+     * Thread unless cancel() was called in the meantime
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @param done specifies the callback, it reads getCachedHint()
+     */
+    public void request(final int bishop, final long pawns, final Runnable done) {
+        final int requested = generation;
+        executor.execute(new Runnable() {
+            public void run() {
+                // cleared before the check: a cancel() after it is seen by
+                // the search, one before it changed the generation
+                solver.clearCancel();
+                if (requested != generation) {
+                    return;
+                }
+
+                long start = System.nanoTime();
+                solver.setDeadline(start + timeBudget);
+                int result = solver.solve(bishop, pawns);
+                System.out.println(String.format(
+                        "INFO: hint search %d nodes in %.1f ms",
+                        solver.getNodes(), (System.nanoTime() - start) / 1e6));
+
+                if (result == Solver.solvable) {
+                    store(bishop, pawns, solver.getSolution());
+                } else if (result == Solver.unsolvable) {
+                    store(bishop, pawns, noHint);
+                }
+                // checked again on the EDT, where cancel() is called
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (requested == generation) {
+                            done.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Description: allow the caller to cancel the pending requests
+     * Pre condition: none
+     * Post condition: the running search stops soon, no callback of an
+     * earlier request runs
+     */
+    public void cancel() {
+        generation++;
+        solver.cancel();
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the hint thread to cache a solution
+     * Pre condition: order is a capture order of the position
+     * Post condition: every position on the way is cached with its next
+     * capture, so following the hints needs no more searches
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @param order specifies the squares in capture order
+     */
+    private void store(int bishop, long pawns, int[] order) {
+        for (int i = 0; i < order.length; i++) {
+            store(bishop, pawns, order[i]);
+            bishop = order[i];
+            pawns &= ~(1L << bishop);
+        }
+    }
+
+    private synchronized void store(int bishop, long pawns, int hint) {
+        int slot = hash(bishop, pawns);
+        cachedPawns[slot] = pawns;
+        cachedBishop[slot] = (byte) (bishop + 1);
+        cachedHint[slot] = (byte) hint;
+    }
+
+    private static int hash(int bishop, long pawns) {
+        long h = (pawns ^ (bishop * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> (64 - cacheBits));
+    }
+
+}
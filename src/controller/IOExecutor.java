@@ -0,0 +1,84 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: IOExecutor
+ * Description: The IOExecutor allows the caller to run file I/O away from the
+ * Event Dispatch Thread and get a callback on the Event Dispatch Thread when
+ * the work is done.
+ */
+
+package controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
+
+public class IOExecutor {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // a single thread keeps reads and writes of the dataset in order, e.g.
+    // the index file is never written by two tasks at the same time
+    private static final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "chess-io");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private IOExecutor() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to run work on the I/O thread
+     * Pre condition: work can not be null
+     * Post condition: work runs on the I/O thread, then done runs on the
+     * Event Dispatch Thread (even if work failed)
+     * @param work specifies the I/O work
+     * @param done specifies the callback, can be null
+     */
+    public static void submit(final Runnable work, final Runnable done) {
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    System.out.println("ERROR: background task failed: " + e);
+                } finally {
+                    if (done != null) {
+                        SwingUtilities.invokeLater(done);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Description: allow the caller to run code on the Event Dispatch Thread
+     * Pre condition: task can not be null
+     * Post condition: task runs now if called on the Event Dispatch Thread,
+     * otherwise it is queued on it
+     * @param task specifies the code to run
+     */
+    public static void runOnEDT(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+        } else {
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+}
@@ -9,6 +9,8 @@ package controller;
 
 import model.State;
 import model.CaptureState;
+import model.GameLog;
+import model.PuzzleFeed;
 import model.ReleaseState;
 import view.ChessBoardUI;
 import view.Theme;
@@ -21,6 +23,9 @@ public class Manager {
     
     State myState;
     ChessBoardUI myMainUI = null;
+    HintEngine hintEngine = new HintEngine();
+    
+    int pendingTasks = 0; // background tasks not finished yet
     
     // -----------------------------------------------------------------------
     // Constructor
@@ -66,31 +71,50 @@ public class Manager {
     /**
      * Description: allow the caller to start a new game 
      * Pre condition: Manager and myMainUI object must exist/ can not be null
-     * Post condition: create a game state and render the UI
+     * Post condition: create a game state, load the puzzle in the background 
+     * and render the UI when it is loaded
      */    
     public void startNewGame() {
         System.out.println(">>> NEW GAME");
 
-        // create and initialize game state
+        // create the game state, the puzzle is picked on the I/O thread
+        endGame();
         myState = new CaptureState(this);
-        myState.initializeGame();
+        myState.setGameLog(new GameLog());
         
-        // render ui
         if (myMainUI != null) {
             myMainUI.clear();
-            myMainUI.renderState(myState);
-            myMainUI.installHandler();
-            myMainUI.advanceLevel(myState.getCurrentLevel());
         }
+        loadLevel();
+    }
+
+    /**
+     * Description: allow the caller to start an endless game 
+     * Pre condition: Manager and myMainUI object must exist/ can not be null
+     * Post condition: like startNewGame(), but the puzzles are made while 
+     * the player plays and the levels do not end
+     */    
+    public void startEndlessGame() {
+        System.out.println(">>> NEW ENDLESS GAME");
+
+        // the feed starts making the first puzzles right away
+        CaptureState state = new CaptureState(this);
+        state.setFeed(new PuzzleFeed(0));
+        state.setGameLog(new GameLog());
+        endGame();
+        myState = state;
         
-        // print out game state for debugging
-        System.out.println(myState.toString());
+        if (myMainUI != null) {
+            myMainUI.clear();
+        }
+        loadLevel();
     }
 
     /**
      * Description: allow the caller to advance to the next level
      * Pre condition: myState and myMainUI must exist/ can not be null
-     * Post condition: reinitialize game state and render the UI again 
+     * Post condition: reinitialize game state in the background and render 
+     * the changed tiles when it is loaded
      * @return true if game can advance; otherwise false
      */    
     public boolean advanceNextLevel() {
@@ -104,18 +128,7 @@ public class Manager {
         }
 
         // re-initialize game state
-        myState.initializeGame();
-       
-        // render ui again
-        if (myMainUI != null) {
-            myMainUI.clear();
-            myMainUI.renderState(myState);
-            myMainUI.installHandler();
-            myMainUI.advanceLevel(myState.getCurrentLevel());
-        }
-        
-        // print out game state for debugging
-        System.out.println(myState.toString());
+        loadLevel();
         return true;
     }
     
@@ -128,6 +141,7 @@ public class Manager {
         System.out.println(">>> CREATE PUZZLE");
 
         // create and initialize game state
+        endGame();
         myState = new ReleaseState(this);
         myState.initializeGame();
         
@@ -135,7 +149,6 @@ public class Manager {
         if (myMainUI != null) {
             myMainUI.clear();
             myMainUI.renderState(myState);
-            myMainUI.installHandler();
             myMainUI.initializeLevel();
         }
         
@@ -155,33 +168,165 @@ public class Manager {
             case "undo":
                 undo();
                 break;
+            case "redo":
+                redo();
+                break;
+            case "hint":
+                hint();
+                break;
             case "save puzzle":
                 savePuzzle();
                 break;
+            case "save unique":
+                saveUniquePuzzle();
+                break;
             default:
                 System.out.println("ERROR: Unknown command:" + command);
                 break;
         }
     }
     
+    /**
+     * Description: allow the caller to end the current game, when it is
+     * replaced or its window is closed
+     * Pre condition: none
+     * Post condition: the hint search is dropped and the state's log is 
+     * closed, see State.endGame()
+     */    
+    public void endGame() {
+        hintEngine.cancel();
+        if (myState != null) {
+            myState.endGame();
+        }
+    }
+    
+    /**
+     * Description: allow the caller to cancel the hint search
+     * Pre condition: none
+     * Post condition: a pending hint is dropped, e.g. because the player 
+     * moved
+     */    
+    public void cancelHint() {
+        hintEngine.cancel();
+    }
+    
     /**
      * Description: allow the caller to update status 
      * Pre condition: myMainUI and newStatus can not be null 
-     * Post condition: print a new status
+     * Post condition: print a new status on the Event Dispatch Thread, the 
+     * caller can be on any thread
      * @param newStatus specifies the new status
      */    
-    public void updateStatus(String newStatus) {
+    public void updateStatus(final String newStatus) {
+        if (myMainUI == null) {
+            return;
+        }
+        
+        IOExecutor.runOnEDT(new Runnable() {
+            public void run() {
+                myMainUI.updateStatus(newStatus);
+            }
+        });
+    }
+    
+    /**
+     * Description: allow the caller to run file I/O in the background
+     * Pre condition: must be called on the Event Dispatch Thread, work can not
+     * be null
+     * Post condition: the menu buttons are disabled while any task is pending,
+     * done runs on the Event Dispatch Thread after work; without a UI the work 
+     * runs right away
+     * @param work specifies the I/O work
+     * @param done specifies the callback, can be null
+     */    
+    public void runInBackground(Runnable work, final Runnable done) {
         if (myMainUI == null) {
+            work.run();
+            if (done != null) {
+                done.run();
+            }
             return;
         }
         
-        myMainUI.updateStatus(newStatus);
+        beginTask();
+        
+        IOExecutor.submit(work, new Runnable() {
+            public void run() {
+                endTask();
+                if (done != null) {
+                    done.run();
+                }
+            }
+        });
     }
 
     // -----------------------------------------------------------------------
     // Private Methods
     // -----------------------------------------------------------------------    
     
+    /**
+     * Description: allow the caller to report that background work started
+     * Pre condition: must be called on the Event Dispatch Thread
+     * Post condition: the menu buttons are disabled
+     */    
+    public void beginTask() {
+        pendingTasks++;
+        if (myMainUI != null) {
+            myMainUI.setMenuEnabled(false);
+        }
+    }
+    
+    /**
+     * Description: allow the caller to report that background work finished
+     * Pre condition: must be called on the Event Dispatch Thread, once for 
+     * every beginTask()
+     * Post condition: the menu buttons are enabled when nothing is pending
+     */    
+    public void endTask() {
+        pendingTasks--;
+        if (pendingTasks == 0 && myMainUI != null) {
+            myMainUI.setMenuEnabled(true);
+        }
+    }
+    
+    /**
+     * Description: allow the caller to load the current level
+     * Pre condition: myState must exist
+     * Post condition: the board is disabled while the puzzle is picked on 
+     * the I/O thread, then it is loaded and rendered on the Event Dispatch 
+     * Thread and the board enabled again; the board and the path are only
+     * ever changed on the Event Dispatch Thread
+     */    
+    private void loadLevel() {
+        final State state = myState;
+        hintEngine.cancel();
+        
+        if (myMainUI != null) {
+            myMainUI.setBoardEnabled(false);
+        }
+        
+        runInBackground(new Runnable() {
+            public void run() {
+                state.prepareGame();
+            }
+        }, new Runnable() {
+            public void run() {
+                state.initializeGame();
+                if (myMainUI != null) {
+                    // a new puzzle appears in place, the bishop must not
+                    // slide over from where the last level ended
+                    myMainUI.clear();
+                    myMainUI.renderState(state);
+                    myMainUI.advanceLevel(state.getCurrentLevel());
+                    myMainUI.setBoardEnabled(true);
+                }
+                
+                // print out game state for debugging
+                System.out.println(state.toString());
+            }
+        });
+    }
+    
     /**
      * Description: allow the caller to undo a move
      * Pre condition: myMainUI and myState can not be null
@@ -199,8 +344,121 @@ public class Manager {
             return;
         }
         
-        myMainUI.undo();
+        hintEngine.cancel();
         myState.undo();
+        myMainUI.undo();
+        
+        // print out game state for debugging
+        System.out.println(myState.toString());
+    }    
+    
+    /**
+     * Description: allow the caller to go back to an earlier move
+     * Pre condition: myMainUI and myState can not be null
+     * Post condition: the game state is as it was after ply moves and is 
+     * shown by the main ui; the moves after it can be redone
+     * @param ply specifies the number of moves to keep
+     */    
+    public void jumpTo(int ply) {
+        System.out.println(">>> JUMP TO " + ply);
+        
+        if (myState == null || myMainUI == null) {
+            return;
+        }
+        
+        // forward moves are made again with redo
+        hintEngine.cancel();
+        if (ply == myState.getMoveCount()) {
+            System.out.println("INFO: Already at move " + ply);
+            return;
+        }
+        if (ply > myState.getMoveCount() || !myState.jumpTo(ply)) {
+            System.out.println("INFO: Nothing to jump to");
+            return;
+        }
+        myMainUI.jumpTo();
+        
+        // print out game state for debugging
+        System.out.println(myState.toString());
+    }    
+    
+    /**
+     * Description: allow the caller to get a hint
+     * Pre condition: myMainUI and myState can not be null
+     * Post condition: the next correct capture is highlighted on the board;
+     * the search runs in the background and is dropped if the position 
+     * changes first
+     */    
+    private void hint() {
+        System.out.println(">>> HINT");
+        
+        if (!(myState instanceof CaptureState) || myMainUI == null) {
+            return;
+        }
+        if (myState.getBishopPosition() == null || myState.isGameOver()) {
+            System.out.println("INFO: Nothing to hint");
+            return;
+        }
+        
+        final State state = myState;
+        final int bishop = state.getBishopPosition().getIndex();
+        final long pawns = state.getPawnMask();
+        
+        int hint = hintEngine.getCachedHint(bishop, pawns);
+        if (hint != HintEngine.notCached) {
+            showHint(hint);
+            return;
+        }
+        
+        hintEngine.request(bishop, pawns, new Runnable() {
+            public void run() {
+                // the player may have moved while the solver ran
+                if (state != myState || state.getPawnMask() != pawns) {
+                    return;
+                }
+                showHint(hintEngine.getCachedHint(bishop, pawns));
+            }
+        });
+    }
+    
+    /**
+     * Description: allow the caller to show a hint
+     * Pre condition: must be called on the Event Dispatch Thread
+     * Post condition: the square is highlighted, or the reason there is no 
+     * hint is printed
+     * @param hint specifies the square, noHint or notCached
+     */    
+    private void showHint(int hint) {
+        if (hint >= 0) {
+            myMainUI.showHint(hint);
+        } else if (hint == HintEngine.noHint) {
+            System.out.println("INFO: No solution from here, undo a move");
+        } else {
+            System.out.println("INFO: No hint found in time");
+        }
+    }
+    
+    /**
+     * Description: allow the caller to redo a move
+     * Pre condition: myMainUI and myState can not be null
+     * Post condition: the last undone move will be made again in the game 
+     * state and shown by the main ui
+     */    
+    private void redo() {
+        System.out.println(">>> REDO");
+        
+        if (myState == null || myMainUI == null) {
+            return;
+        }
+        
+        if (!myState.canRedo()) {
+            System.out.println("INFO: Nothing to redo");
+            return;
+        }
+        
+        hintEngine.cancel();
+        myState.redo();
+        myMainUI.redo();
         
         // print out game state for debugging
         System.out.println(myState.toString());
@@ -220,5 +478,21 @@ public class Manager {
             
         myState.saveGame();
     }
+    
+    /**
+     * Description: allow the caller to save the puzzles with one solution
+     * Pre condition: myState can not be null
+     * Post condition: the puzzles of the path that have exactly one capture 
+     * order will be saved to the file system
+     */    
+    private void saveUniquePuzzle() {
+        System.out.println(">>> SAVE UNIQUE PUZZLE");
+        
+        if (!(myState instanceof ReleaseState)) {
+            return;
+        }
+            
+        ((ReleaseState) myState).saveUniqueGame();
+    }
         
 }
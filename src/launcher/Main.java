@@ -20,10 +20,13 @@
 
 package launcher;
 
+import model.PuzzleCatalog;
 import view.MenuUI;
 
 public class Main {
     public static void main(String[] args) {
+        PuzzleCatalog.getInstance(); // start loading the puzzles
+        
         MenuUI ui = new MenuUI(); // create the user interface
         ui.createAndShowGUI();
     }
@@ -0,0 +1,159 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: Bitboard
+ * Description: Bitboard allows the caller to work with the board as a 64 bit
+ * mask; bit (y * 8 + x) stands for the square at column x, row y.
+ */
+
+package model;
+
+public class Bitboard {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // all squares that share a diagonal with the square (not the square
+    // itself); the bishop can capture any of them, pieces do not block
+    static final long[] diagonals = new long[64];
+
+    // the squares of the board colour of the square (x + y even or odd)
+    static final long lightSquares;
+    static final long darkSquares;
+
+    static {
+        long light = 0L;
+        for (int square = 0; square < 64; square++) {
+            int x = square % 8;
+            int y = square / 8;
+            if ((x + y) % 2 == 0) {
+                light |= 1L << square;
+            }
+
+            long mask = 0L;
+            for (int other = 0; other < 64; other++) {
+                int dx = Math.abs(other % 8 - x);
+                int dy = Math.abs(other / 8 - y);
+                if (dx == dy && dx != 0) {
+                    mask |= 1L << other;
+                }
+            }
+            diagonals[square] = mask;
+        }
+        lightSquares = light;
+        darkSquares = ~light;
+    }
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private Bitboard() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    public static int square(int x, int y) {
+        return y * 8 + x;
+    }
+
+    public static int square(Position pos) {
+        return pos.getIndex();
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Description: allow the caller to get the diagonal squares of a square
+     * Pre condition: square must be between 0 and 63
+     * Post condition: return the mask of the squares the bishop sees
+     * @param square specifies the square
+     * @return a long, the diagonal mask
+     */
+    public static long diagonals(int square) {
+        return diagonals[square];
+    }
+
+    /**
+     * Description: allow the caller to get the squares of the same colour
+     * Pre condition: square must be between 0 and 63
+     * Post condition: return the mask of the squares the bishop can reach
+     * @param square specifies the square
+     * @return a long, the colour mask
+     */
+    public static long sameColour(int square) {
+        return (lightSquares & (1L << square)) != 0 ? lightSquares : darkSquares;
+    }
+
+    /**
+     * Description: allow the caller to flip a mask top to bottom
+     * Pre condition: none
+     * Post condition: return the mask with row y moved to row 7 - y
+     * @param mask specifies the squares
+     * @return a long, the flipped mask
+     */
+    public static long flipVertical(long mask) {
+        return Long.reverseBytes(mask);
+    }
+
+    /**
+     * Description: allow the caller to mirror a mask left to right
+     * Pre condition: none
+     * Post condition: return the mask with column x moved to column 7 - x
+     * @param mask specifies the squares
+     * @return a long, the mirrored mask
+     */
+    public static long mirrorHorizontal(long mask) {
+        mask = ((mask >>> 1) & 0x5555555555555555L) | ((mask & 0x5555555555555555L) << 1);
+        mask = ((mask >>> 2) & 0x3333333333333333L) | ((mask & 0x3333333333333333L) << 2);
+        mask = ((mask >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((mask & 0x0f0f0f0f0f0f0f0fL) << 4);
+        return mask;
+    }
+
+    /**
+     * Description: allow the caller to flip a mask about the a1-h8 diagonal
+     * Pre condition: none
+     * Post condition: return the mask with square (x, y) moved to (y, x)
+     * @param mask specifies the squares
+     * @return a long, the flipped mask
+     */
+    public static long flipDiagonal(long mask) {
+        long t = 0x0f0f0f0f00000000L & (mask ^ (mask << 28));
+        mask ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (mask ^ (mask << 14));
+        mask ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (mask ^ (mask << 7));
+        mask ^= t ^ (t >>> 7);
+        return mask;
+    }
+
+    /**
+     * Description: allow the caller to apply one of the 8 symmetries of the
+     * board; the rules do not change under any of them
+     * Pre condition: symmetry must be between 0 and 7
+     * Post condition: return the mask flipped about the diagonal if bit 2 of
+     * symmetry is set, then top to bottom if bit 1 is set, then left to
+     * right if bit 0 is set; 0 is the identity
+     * @param symmetry specifies the symmetry
+     * @param mask specifies the squares
+     * @return a long, the transformed mask
+     */
+    public static long transform(int symmetry, long mask) {
+        if ((symmetry & 4) != 0) {
+            mask = flipDiagonal(mask);
+        }
+        if ((symmetry & 2) != 0) {
+            mask = flipVertical(mask);
+        }
+        if ((symmetry & 1) != 0) {
+            mask = mirrorHorizontal(mask);
+        }
+        return mask;
+    }
+
+}
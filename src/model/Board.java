@@ -0,0 +1,232 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: Board
+ * Description: The Board allows the caller to keep the position of a game
+ * as a small value: the bishop square, the pawn bitmask and the move stack.
+ * fork() copies it in constant time, the move history is shared until one
+ * of the boards makes a new move (see MoveStack).
+ */
+
+package model;
+
+public class Board {
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private int bishop = -1; // bishop square (y * 8 + x), -1 if no bishop
+    private long pawns = 0L; // pawn bitmask, bit (y * 8 + x)
+    private MoveStack moves;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create an empty Board object
+     * Pre condition: none
+     * Post condition: Board object is created with no bishop and no pawns
+     */
+    public Board() {
+        moves = new MoveStack();
+    }
+
+    /**
+     * Description: allow the caller to create a Board object of a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: Board object is created with no moves
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     */
+    public Board(int bishop, long pawns) {
+        this();
+        reset(bishop, pawns);
+    }
+
+    private Board(Board other) {
+        bishop = other.bishop;
+        pawns = other.pawns;
+        moves = other.moves.fork();
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public int getBishop() {
+        return bishop;
+    }
+
+    public long getPawns() {
+        return pawns;
+    }
+
+    public int getNumberOfPawns() {
+        return Long.bitCount(pawns);
+    }
+
+    public boolean hasBishop() {
+        return bishop >= 0;
+    }
+
+    public boolean isPawn(int square) {
+        return (pawns & (1L << square)) != 0;
+    }
+
+    public int getMoveCount() {
+        return moves.size();
+    }
+
+    /**
+     * Description: allow the caller to get a move
+     * Pre condition: i must be between 0 and getMoveCount() - 1
+     * Post condition: return the encoded move (see MoveStack)
+     * @param i specifies the index of the move, 0 is the first move
+     * @return the encoded move
+     */
+    public int getMove(int i) {
+        return moves.get(i);
+    }
+
+    public boolean canRedo() {
+        return moves.canRedo();
+    }
+
+    /**
+     * Description: allow the caller to get the number of moves that can be 
+     * reached with undo and redo
+     * Pre condition: object must exist
+     * Post condition: return the moves made plus the moves that can be redone
+     * @return an integer, the last ply
+     */
+    public int getHistoryLength() {
+        return moves.limit();
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to fork the board
+     * Pre condition: object must exist
+     * Post condition: return an independent board in the same position, with
+     * the same moves to undo and redo, in constant time
+     * @return a Board
+     */
+    public Board fork() {
+        return new Board(this);
+    }
+
+    /**
+     * Description: allow the caller to set up a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: the board holds the puzzle, there are no moves
+     * @param newBishop specifies the bishop square, -1 for no bishop
+     * @param newPawns specifies the pawn bitmask
+     */
+    public void reset(int newBishop, long newPawns) {
+        bishop = newBishop;
+        pawns = newPawns;
+        moves.clear();
+    }
+
+    /**
+     * Description: allow the caller to empty the board
+     * Pre condition: object must exist
+     * Post condition: no bishop, no pawns and no moves
+     */
+    public void clear() {
+        reset(-1, 0L);
+    }
+
+    /**
+     * Description: allow the caller to capture a pawn
+     * Pre condition: the board has a bishop, square is a pawn
+     * Post condition: the pawn is removed, the bishop is on square
+     * @param square specifies the square of the pawn
+     */
+    public void capture(int square) {
+        moves.push(MoveStack.encode(bishop, square, true), pawns);
+        pawns &= ~(1L << square);
+        bishop = square;
+    }
+
+    /**
+     * Description: allow the caller to move the bishop and leave a pawn on
+     * the square it leaves (used to create a puzzle backwards)
+     * Pre condition: the board has a bishop, square is empty
+     * Post condition: a pawn is on the old bishop square, the bishop is on
+     * square
+     * @param square specifies the new bishop square
+     */
+    public void release(int square) {
+        moves.push(MoveStack.encode(bishop, square, false), pawns);
+        pawns |= 1L << bishop;
+        bishop = square;
+    }
+
+    /**
+     * Description: allow the caller to undo the last move
+     * Pre condition: getMoveCount() must be greater than 0
+     * Post condition: the board is back before the move, which can be redone
+     * @return the encoded move
+     */
+    public int undo() {
+        int move = moves.undo();
+        int from = MoveStack.from(move);
+        if (MoveStack.isCapture(move)) {
+            pawns |= 1L << MoveStack.to(move);
+        } else {
+            pawns &= ~(1L << from);
+        }
+        bishop = from;
+        return move;
+    }
+
+    /**
+     * Description: allow the caller to go to any ply of the history
+     * Pre condition: ply must be between 0 and getHistoryLength()
+     * Post condition: the board is as it was after ply moves, in constant 
+     * time; the later moves can still be redone
+     * @param ply specifies the number of moves made
+     */
+    public void jumpTo(int ply) {
+        if (ply < moves.limit()) {
+            // the snapshot taken before move number ply
+            pawns = moves.getPawnsBefore(ply);
+            bishop = MoveStack.from(moves.get(ply));
+        } else if (ply > 0) {
+            // the last move, from the snapshot before it
+            int move = moves.get(ply - 1);
+            pawns = moves.getPawnsBefore(ply - 1);
+            if (MoveStack.isCapture(move)) {
+                pawns &= ~(1L << MoveStack.to(move));
+            } else {
+                pawns |= 1L << MoveStack.from(move);
+            }
+            bishop = MoveStack.to(move);
+        }
+        moves.setSize(ply);
+    }
+
+    /**
+     * Description: allow the caller to redo the last undone move
+     * Pre condition: canRedo() must be true
+     * Post condition: the board is after the move again
+     * @return the encoded move
+     */
+    public int redo() {
+        int move = moves.redo();
+        int to = MoveStack.to(move);
+        if (MoveStack.isCapture(move)) {
+            pawns &= ~(1L << to);
+        } else {
+            pawns |= 1L << MoveStack.from(move);
+        }
+        bishop = to;
+        return move;
+    }
+
+}
@@ -8,13 +8,54 @@
 package model;
 
 import controller.Manager;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 public class CaptureState extends State {
     
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+    
+    // reused by loadGame(), so a level load does not allocate
+    private ByteBuffer readBuffer = null;
+    private int[] squares = new int[66];
+    
+    // the puzzle picked by selectPuzzle(), looked up in the PuzzleCatalog
+    private int selectedPawns = 0;
+    private int selectedFile = 0;
+    
+    // the puzzle picked by prepareGame(), loaded by initializeGame(); the
+    // status shows noPuzzleName if none could be picked
+    static final String noPuzzleName = "not found";
+    private long[] next = new long[2];
+    private boolean hasNext = false;
+    private boolean isPrepared = false;
+    private String nextFileName = "";
+    
+    // the puzzle taken from the PuzzleStore, or drawn from the id space,
+    // when a pawn count has no file; either is proved solvable first, with
+    // a detector of its own as it runs on the I/O thread
+    static final int maxDraws = 100_000;
+    static final int maxStoreDraws = 64;
+    private long selectedId = PuzzleId.noId;
+    private Random random = new Random();
+    private DeadEndDetector drawDetector = new DeadEndDetector();
+    
+    // the puzzles served this game; a near repeat of one of them (see
+    // HammingIndex) is selected again, up to maxRepeatTries
+    static final int maxRepeatTries = 8;
+    private HammingIndex served = new HammingIndex();
+
+    // checks the position after every capture, undo, redo and jump; off
+    // for replays, which only need the rules
+    private DeadEndDetector deadEndDetector = new DeadEndDetector();
+    private boolean isDeadEndChecked = true;
+    
+    // makes the puzzles of the endless mode, null when playing the levels
+    private PuzzleFeed feed = null;
+    
     // -----------------------------------------------------------------------
     // Constructor
     // -----------------------------------------------------------------------
@@ -34,19 +75,127 @@ public class CaptureState extends State {
     // Public Methods (Override)
     // -----------------------------------------------------------------------
 
+    /**
+     * Description: allow the caller to pick the puzzle of the current level
+     * Pre condition: must not run on the Event Dispatch Thread, it may read
+     * a file or make the puzzle
+     * Post condition: the puzzle is picked but the board is not changed, so
+     * the last level can still be shown and played; initializeGame() loads
+     * it
+     */    
+    @Override
+    public void prepareGame() {
+        hasNext = false;
+        if (feed != null) {
+            prepareFromFeed();
+        } else {
+            for (int tries = 1; ; tries++) {
+                String file = selectPuzzle(currentLevel);
+                if (file.isEmpty()) {
+                    // no file, no stored puzzle and none drawn
+                    System.out.println("ERROR: no puzzle for level " + currentLevel);
+                    hasNext = false;
+                    break;
+                }
+                if (selectedId != PuzzleId.noId) {
+                    hasNext = PuzzleId.unrank(selectedId, next);
+                    selectedId = PuzzleId.noId;
+                } else if (PuzzleCatalog.getInstance().getPuzzle(selectedPawns,
+                        selectedFile, next)) {
+                    hasNext = true;
+                } else {
+                    // not in the catalog (yet), read the file
+                    hasNext = readPuzzleFile(file, next);
+                }
+                nextFileName = file;
+
+                // a level with few puzzles may have to repeat one
+                if (!hasNext || tries == maxRepeatTries
+                        || !served.contains(next[1], HammingIndex.repeatDistance)) {
+                    break;
+                }
+                System.out.println("INFO: near repeat of a puzzle served, selecting again");
+            }
+            if (hasNext) {
+                served.add((int) next[0], next[1]);
+            }
+        }
+        
+        if (hasNext) {
+            System.out.println("INFO: puzzle id " + PuzzleId.toString(
+                    PuzzleId.rank((int) next[0], next[1])));
+            System.out.println("INFO: puzzle graph " + new PuzzleAnalyzer(
+                    (int) next[0], next[1]));
+        }
+        isPrepared = true;
+    }
+
     /**
      * Description: allow the caller to initialize the game
-     * Pre condition: object must exist
-     * Post condition: load game
+     * Pre condition: must be called on the thread that shows the board; 
+     * prepareGame() should have been called off it first
+     * Post condition: the puzzle picked is loaded; without prepareGame() 
+     * it is picked here
      */    
     @Override
     public void initializeGame() {
         // call base class
         super.initializeGame();
+        isDeadEnd = false;
+        
+        if (!isPrepared) {
+            prepareGame();
+        }
+        isPrepared = false;
         
-        loadGame(selectPuzzle(currentLevel));
+        if (hasNext) {
+            puzzleFileName = nextFileName;
+            loadPuzzle((int) next[0], next[1]);
+        } else {
+            // the board stays empty
+            puzzleFileName = noPuzzleName;
+        }
+        updateStatus();
+        
+        if (gameLog != null && board.hasBishop()) {
+            gameLog.logLevel(currentLevel);
+            gameLog.logPuzzle(getBishopPosition(), getPawnMask());
+            gameLog.flush();
+        }
     }     
 
+    /**
+     * Description: allow the caller to end the game, e.g. when a new game 
+     * replaces it
+     * Pre condition: object must exist
+     * Post condition: see State.endGame(); the feed is closed, so its work
+     * left on the worker pool is cancelled
+     */    
+    @Override
+    public void endGame() {
+        super.endGame();
+        if (feed != null) {
+            feed.close();
+        }
+    }
+
+    /**
+     * Description: allow the caller to advance the game level
+     * Pre condition: object must exist
+     * Post condition: see State.advanceLevel(); in the endless mode there 
+     * is always a next level
+     * @return true if game can be advanced, false otherwise
+     */    
+    @Override
+    public boolean advanceLevel() {
+        if (feed == null) {
+            return super.advanceLevel();
+        }
+        currentLevel++;
+        System.out.println("INFO: endless level " + currentLevel);
+        return true;
+    }
+
     /**
      * Description: allow the caller to check if the move is valid
      * Pre condition: object and position must exist
@@ -56,18 +205,13 @@ public class CaptureState extends State {
      */    
     @Override
     public boolean isValidMove(Position newPos) {
-        // Skip if tile is not occupied
-        if (occupiedPosition[newPos.getY()][newPos.getX()] == '.') {
-            return false;
-        }
-
-        // Skip if new position is the bishop
-        if (newPos.isEqual(bishopPosition)) {
+        // Skip if there is no bishop or the tile is not a pawn
+        if (!board.hasBishop() || !board.isPawn(newPos.getIndex())) {
             return false;
         }
         
         // Skip if new position is not a diagonal move
-        if (!newPos.isDiagonal(bishopPosition)) {
+        if (!newPos.isDiagonal(getBishopPosition())) {
             return false;
         }
         
@@ -77,14 +221,16 @@ public class CaptureState extends State {
     /**
      * Description: allow the caller to move position
      * Pre condition: object and Position must exist
-     * Post condition: move the bishop position and decrement the number of 
-     * pawns
+     * Post condition: the bishop captures the pawn on newPos
      * @param newPos specifies the position to move
      */    
     @Override
     public void movePosition(Position newPos) {
-        numberOfPawns--;
-        setBishopPosition(newPos);
+        if (gameLog != null) {
+            gameLog.logMove(newPos);
+        }
+        board.capture(newPos.getIndex());
+        checkDeadEnd();
     }
     
 
@@ -95,51 +241,202 @@ public class CaptureState extends State {
      */    
     @Override
     public void undo() {
-        // the previous move
-        int lastIndex = path.size() - 1;
-        
         // no previous move
-        if (lastIndex < 0) { 
-            if (bishopPosition != null) {
-               occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = '.';
-            }
+        if (board.getMoveCount() == 0) { 
             return;
         }
         
-        Position lastPos;
-        lastPos = path.remove(lastIndex);
+        // put the captured pawn back and the bishop on its last position
+        board.undo();
+        if (gameLog != null) {
+            gameLog.logUndo();
+        }
+        checkDeadEnd();
         addUndos();
+    }
+    
+    /**
+     * Description: allow the caller to redo the last undone move
+     * Pre condition: object must exist
+     * Post condition: the bishop captures the pawn again, counted as a move
+     */    
+    @Override
+    public void redo() {
+        if (!board.canRedo()) {
+            return;
+        }
         
-        // set the bishopPosition and pawns back to the last position
-        if (bishopPosition != null) {
-            occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = 'P';
-            bishopPosition = lastPos;
-            occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = 'Q';
-            numberOfPawns++;  
-        } else {
-            // nothing for now.
+        board.redo();
+        if (gameLog != null) {
+            gameLog.logRedo();
         }
+        checkDeadEnd();
+        addMoves();
+    }
+    
+    /**
+     * Description: allow the caller to go back or forward to any move
+     * Pre condition: object must exist
+     * Post condition: see State.jumpTo(), the dead end flag is updated
+     * @param ply specifies the number of moves made
+     * @return true if the board changed, false otherwise
+     */    
+    @Override
+    public boolean jumpTo(int ply) {
+        if (!super.jumpTo(ply)) {
+            return false;
+        }
+        checkDeadEnd();
+        return true;
     }
     
     // -----------------------------------------------------------------------
-    // Private Methods
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+    
+    public boolean isDeadEnd() {
+        return isDeadEnd;
+    }
+    
+    public boolean isEndless() {
+        return feed != null;
+    }
+    
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
     // -----------------------------------------------------------------------
 
     /**
-     * Description: allow the caller to set the bishop position
-     * Pre condition: object must exist, occupiedPosition and path must be 
-     * initialized
-     * Post condition: replace old bishop position with '.', new position with 
-     * 'Q'
-     * @param newPos specifies the bishop's new position
+     * Description: allow the caller to play the endless mode
+     * Pre condition: must be called before initializeGame()
+     * Post condition: the puzzles are taken from the feed, not the dataset
+     * @param newFeed specifies the feed, null to play the levels
+     */    
+    public void setFeed(PuzzleFeed newFeed) {
+        feed = newFeed;
+    }
+    
+    /**
+     * Description: allow the caller to turn the dead end check on or off
+     * Pre condition: none
+     * Post condition: if off, no check is made after a move and the state is
+     * never flagged as a dead end
+     * @param newIsDeadEndChecked specifies if the check is made
      */    
-    private void setBishopPosition(Position newPos) {
-        occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = '.';  
-        path.add(bishopPosition);     
-        bishopPosition = newPos;
-        occupiedPosition[newPos.getY()][newPos.getX()] = 'Q';
-    } 
+    public void setDeadEndCheck(boolean newIsDeadEndChecked) {
+        isDeadEndChecked = newIsDeadEndChecked;
+        if (!isDeadEndChecked) {
+            isDeadEnd = false;
+        }
+    }
+    
+    // -----------------------------------------------------------------------
+    // Package Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to load a puzzle without reading a file
+     * Pre condition: object must exist, bishop is not one of the pawns
+     * Post condition: the state is reset to the given puzzle
+     * @param bishop specifies the bishop square (y * 8 + x)
+     * @param pawns specifies the pawn bitmask
+     */    
+    void loadPuzzle(int bishop, long pawns) {
+        board.reset(bishop, pawns);
+        isDeadEnd = false;
+    }
     
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to check for a dead end
+     * Pre condition: the board has a bishop
+     * Post condition: isDeadEnd is set if the pawns left are proved to be 
+     * lost, the status is updated when it changes
+     */    
+    private void checkDeadEnd() {
+        if (!isDeadEndChecked) {
+            return;
+        }
+        long start = System.nanoTime();
+        int result = deadEndDetector.check(board.getBishop(), board.getPawns());
+        boolean newDeadEnd = (result == Solver.unsolvable);
+        if (newDeadEnd) {
+            System.out.println(String.format(
+                    "INFO: dead end, found in %.3f ms",
+                    (System.nanoTime() - start) / 1e6));
+        }
+        
+        if (newDeadEnd != isDeadEnd) {
+            isDeadEnd = newDeadEnd;
+            updateStatus();
+        }
+    }
+
+    /**
+     * Description: allow the caller to pick the next endless puzzle
+     * Pre condition: feed can not be null
+     * Post condition: the puzzle made by the feed is the next puzzle; if 
+     * none was made there is no next puzzle and the status says so
+     */    
+    private void prepareFromFeed() {
+        hasNext = feed.take(next);
+        if (hasNext) {
+            nextFileName = String.format("endless-%02d", Long.bitCount(next[1]));
+        } else {
+            System.out.println("ERROR: no endless puzzle for level " + currentLevel);
+        }
+    }
+
+    /**
+     * Description: allow the caller to draw a solvable puzzle at random
+     * Pre condition: pawns must be between 1 and 31
+     * Post condition: return the id of a puzzle that the dead end detector
+     * proves solvable; every solvable puzzle with the pawns is as likely,
+     * save the few the detector gives up on
+     * @param pawns specifies the number of pawns
+     * @return a long, the id; noId if none was found in maxDraws draws
+     */    
+    private long drawPuzzleId(int pawns) {
+        long[] drawn = new long[2];
+        for (int i = 0; i < maxDraws; i++) {
+            long id = PuzzleId.random(pawns, random);
+            PuzzleId.unrank(id, drawn);
+            if (drawDetector.check((int) drawn[0], drawn[1]) == Solver.solvable) {
+                return id;
+            }
+        }
+        return PuzzleId.noId;
+    }
+
+    /**
+     * Description: allow the caller to take a solvable puzzle from the store
+     * Pre condition: pawns must be between 1 and 31
+     * Post condition: return the id of a stored puzzle that the dead end 
+     * detector proves solvable; the store may hold imported puzzles that 
+     * are not
+     * @param pawns specifies the number of pawns
+     * @return a long, the id; noId if the store has none, or none of 
+     * maxStoreDraws was proved solvable
+     */    
+    private long drawStoredId(int pawns) {
+        long[] drawn = new long[2];
+        PuzzleStore store = PuzzleStore.getInstance();
+        for (int i = 0; i < maxStoreDraws; i++) {
+            if (!store.getPuzzle(pawns, random, drawn)) {
+                return PuzzleId.noId;
+            }
+            if (drawDetector.check((int) drawn[0], drawn[1]) == Solver.solvable) {
+                return PuzzleId.rank((int) drawn[0], drawn[1]);
+            }
+        }
+        System.out.println("INFO: no solvable puzzle with " + pawns 
+                + " pawns in the store");
+        return PuzzleId.noId;
+    }
+
     /**
      * Description: allow caller to get a random number 
      * Pre condition: max must be greater than min
@@ -157,30 +454,15 @@ public class CaptureState extends State {
         return rand;
     }
 
-    /**
-     * Description: allow the caller to initialize the occupied position 
-     * Pre condition: occupiedPosition and object must exist
-     * Post condition: initialize the occupiedPosition based on the 
-     * bishopPosition and pawnPosition
-     */    
-    private void initializeOccupiedPosition() {
-        // bishop position 
-        occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = 'Q';
-        
-        // pawn position
-        for (int i = 0; i < pawnPosition.size(); i++) {
-            Position pos = pawnPosition.get(i);
-            occupiedPosition[pos.getY()][pos.getX()] = 'P';
-        }
-    }
-    
     /**
      * Concept: Reading from files.
-     * Description: allow caller to load a game given a puzzleFileName
+     * Description: allow caller to read a puzzle given a puzzleFileName
      * Pre condition: file and objects must exist
-     * Post condition: read the puzzle file and load into the internal 
-     * representation
+     * Post condition: read the puzzle file into the array, the board is not
+     * changed
      * @param puzzleFileName specifies the file to load
+     * @param out specifies the array the bishop and pawns are returned in
+     * @return true if the file was read, false otherwise
      * 
      * sample input file format:
      * 
@@ -192,46 +474,33 @@ public class CaptureState extends State {
      *  1 1
      * 
      */    
-    private void loadGame(String puzzleFileName) {
-        pawnPosition = new ArrayList<>();
+    private boolean readPuzzleFile(String puzzleFileName, long[] out) {
         try {
             String fileSpecifier = "./dataset/puzzle/%s.txt";
             String file = String.format(fileSpecifier, puzzleFileName);
             
             System.out.println(">>> READING FROM FILE " + file);            
             
-            FileReader fr = new FileReader(file);
-            Scanner s = new Scanner(fr);
-            
-            String line = "";
-            
-            while(s.hasNextLine()){
-                line = s.nextLine();
-                
-                // skip line if it starts with # (for comment) 
-                if (line.startsWith("#")) {
-                    continue;
-                }
-                
-                // create a position from the given line
-                Position pos = new Position(line);
-            
-                // the first position will be the bishop's position
-                // the rest will be the pawn position
-                if (bishopPosition == null) {
-                    bishopPosition = pos;
-                } else {
-                    pawnPosition.add(pos);
-                }
+            readBuffer = DatasetParser.readFile(file, readBuffer);
+            int count = DatasetParser.parsePuzzle(readBuffer, squares);
+            if (count < 1) {
+                System.out.println("ERROR: bad puzzle file " + file);
+                return false;
             }
             
-            numberOfPawns = pawnPosition.size();
-            initializeOccupiedPosition();
-            
-            s.close();
+            // the first position will be the bishop's position
+            // the rest will be the pawn position
+            long pawns = 0L;
+            for (int i = 1; i < count; i++) {
+                pawns |= 1L << squares[i];
+            }
+            out[0] = squares[0];
+            out[1] = pawns;
+            return true;
         }
         catch (IOException e) {
             System.out.println("ERROR: reading from file");
+            return false;
         }
         
     }    
@@ -251,28 +520,58 @@ public class CaptureState extends State {
             return "";
         }
  
-        // if not exist then read the index file
-        if (dict == null) {
-            readIndexFile();
+        // use the catalog's index, until it is loaded read the index file
+        int selectedLevelMaxFile;
+        PuzzleCatalog catalog = PuzzleCatalog.getInstance();
+        if (catalog.isLoaded()) {
+            selectedLevelMaxFile = catalog.getMaxFileNumber(selectedLevel);
+        } else {
+            if (dict == null) {
+                readIndexFile();
+            }
+            Integer max = dict.get(selectedLevel);
+            selectedLevelMaxFile = (max == null) ? 0 : max;
+        }
+        if (selectedLevelMaxFile < 1) {
+            // no file, take one from the store, else draw a solvable puzzle
+            // from the id space
+            selectedId = drawStoredId(selectedLevel);
+            if (selectedId != PuzzleId.noId) {
+                return "id-" + PuzzleId.toString(selectedId);
+            }
+            System.out.println("INFO: no puzzle file with " + selectedLevel 
+                    + " pawns, drawing one");
+            selectedId = drawPuzzleId(selectedLevel);
+            if (selectedId == PuzzleId.noId) {
+                System.out.println("ERROR: no puzzle with " + selectedLevel + " pawns");
+                return "";
+            }
+            return "id-" + PuzzleId.toString(selectedId);
         }
-        int selectedLevelMaxFile = dict.get(selectedLevel);
 
         // get a random number from 1 to selectedLevelMaxFile
-        int selectedFile = getRandomNumber(1, selectedLevelMaxFile);
-        String s = String.format("%02d-%04d", selectedLevel, selectedFile);
+        selectedPawns = selectedLevel;
+        selectedFile = getRandomNumber(1, selectedLevelMaxFile);
+        String s = String.format("%02d-%04d", selectedPawns, selectedFile);
         return s;
     }
     
     /**
      * Description: allow the caller to select a puzzle
      * Pre condition: file can not be empty
-     * Post condition: update the file name and return puzzle file name
+     * Post condition: return the puzzle file name, "" if there is none; 
+     * the selection of the last call is cleared first
      * @param level specifies the level of the game
      * @return a string, the puzzle file name
      */    
     private String selectPuzzle(int level) {
         String file = "";
         
+        // nothing is left over from the last level
+        selectedPawns = 0;
+        selectedFile = 0;
+        selectedId = PuzzleId.noId;
+        
         // generate files within a range of pawns
         switch(level){
             case 0:
@@ -308,11 +607,6 @@ public class CaptureState extends State {
             default:
         }
     
-        puzzleFileName = file;
-        
-        // update the file name
-        updateStatus();
-        
         return file;
     }
 }
@@ -0,0 +1,231 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: DatasetParser
+ * Description: DatasetParser allows the caller to read the dataset files
+ * (puzzle, index and score files) straight from a ByteBuffer. Numbers are
+ * decoded from the bytes, no String is created while parsing.
+ */
+
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class DatasetParser {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // results of nextPair() and nextScore()
+    public static final int endOfInput = 0;
+    public static final int lineRead = 1;
+    public static final int badLine = -1;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private DatasetParser() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Concept: Reading from files.
+     * Description: allow the caller to read a whole file into a buffer
+     * Pre condition: file must exist
+     * Post condition: return a buffer holding the file from position 0 to
+     * limit; buffer is reused when it is big enough
+     * @param file specifies the file to read
+     * @param buffer specifies a buffer to reuse, can be null
+     * @return a ByteBuffer, ready to be parsed
+     * @throws IOException if the file can not be read
+     */
+    public static ByteBuffer readFile(String file, ByteBuffer buffer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ)) {
+            int size = (int) channel.size();
+            if (buffer == null || buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(Math.max(size, 4096));
+            }
+
+            buffer.clear();
+            buffer.limit(size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the file is in the buffer
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Description: allow the caller to parse the next "a b" line
+     * Pre condition: buffer can not be null, pair must hold 2 ints
+     * Post condition: comment (#) and empty lines are skipped; the numbers of
+     * the next line are stored in pair and the buffer is moved past the line
+     * @param buffer specifies the bytes to parse
+     * @param pair specifies where the two numbers are stored
+     * @return lineRead, endOfInput, or badLine if the line is not two numbers
+     */
+    public static int nextPair(ByteBuffer buffer, int[] pair) {
+        return nextPair(buffer, pair, 0);
+    }
+
+    /**
+     * Description: allow the caller to parse a puzzle file
+     * Pre condition: buffer can not be null, squares must hold 66 ints
+     * (64 squares and room to parse one more line)
+     * Post condition: squares[0] is the bishop, the rest are the pawns, as
+     * square indexes (y * 8 + x)
+     * @param buffer specifies the bytes of the puzzle file
+     * @param squares specifies where the squares are stored
+     * @return the number of squares, -1 if a line is bad or off the board
+     */
+    public static int parsePuzzle(ByteBuffer buffer, int[] squares) {
+        int count = 0;
+
+        // x and y are parsed into the next two free entries
+        int result;
+        while ((result = nextPair(buffer, squares, count)) == lineRead) {
+            int x = squares[count];
+            int y = squares[count + 1];
+            if (x > 7 || y > 7 || count == 64) {
+                return -1;
+            }
+            squares[count++] = y * 8 + x;
+        }
+        return (result == badLine) ? -1 : count;
+    }
+
+    /**
+     * Description: allow the caller to parse the next score row
+     * Pre condition: buffer can not be null, row must hold 6 ints
+     * Post condition: comment (#) and empty lines are skipped; row holds the
+     * name's start and end position in the buffer, then the score, clicks,
+     * moves and undos
+     * @param buffer specifies the bytes of the score file
+     * @param row specifies where the row is stored
+     * @return lineRead, endOfInput, or badLine if the row can not be parsed
+     */
+    public static int nextScore(ByteBuffer buffer, int[] row) {
+        while (buffer.hasRemaining()) {
+            byte first = buffer.get(buffer.position());
+            if (first == '#' || first == '\n' || first == '\r') {
+                skipLine(buffer);
+                continue;
+            }
+
+            // name, up to the first comma
+            row[0] = buffer.position();
+            while (buffer.hasRemaining() && buffer.get(buffer.position()) != ','
+                    && buffer.get(buffer.position()) != '\n') {
+                buffer.get();
+            }
+            row[1] = buffer.position();
+
+            // four numbers separated by commas
+            int n = 0;
+            boolean isBad = false;
+            while (buffer.hasRemaining()) {
+                byte c = buffer.get();
+                if (c == '\n') {
+                    break;
+                }
+                if (c == ',' || c == ' ' || c == '\r') {
+                    continue;
+                }
+                if (c < '0' || c > '9' || n == 4) {
+                    isBad = true;
+                    continue;
+                }
+                row[2 + n++] = parseDigits(buffer, c - '0');
+            }
+            return (isBad || n != 4) ? badLine : lineRead;
+        }
+        return endOfInput;
+    }
+
+    /**
+     * Description: allow the caller to decode part of a buffer as text
+     * Pre condition: from and to must be inside the buffer
+     * Post condition: return the text, e.g. a name found by nextScore()
+     * @param buffer specifies the bytes
+     * @param from specifies the start position
+     * @param to specifies the end position (exclusive)
+     * @return a string, the UTF-8 text
+     */
+    public static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Static Methods
+    // -----------------------------------------------------------------------
+
+    private static int nextPair(ByteBuffer buffer, int[] pair, int offset) {
+        while (buffer.hasRemaining()) {
+            if (buffer.get(buffer.position()) == '#') {
+                skipLine(buffer);
+                continue;
+            }
+
+            int n = 0;
+            boolean isBad = false;
+            while (buffer.hasRemaining()) {
+                byte c = buffer.get();
+                if (c == '\n') {
+                    break;
+                }
+                if (c == ' ' || c == '\t' || c == '\r') {
+                    continue;
+                }
+                if (c < '0' || c > '9' || n == 2) {
+                    isBad = true;
+                    continue;
+                }
+                pair[offset + n++] = parseDigits(buffer, c - '0');
+            }
+
+            if (isBad || n == 1) {
+                return badLine;
+            }
+            if (n == 2) {
+                return lineRead;
+            }
+        }
+        return endOfInput;
+    }
+
+    private static int parseDigits(ByteBuffer buffer, int value) {
+        while (buffer.hasRemaining()) {
+            byte c = buffer.get(buffer.position());
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            buffer.get();
+        }
+        return value;
+    }
+
+    private static void skipLine(ByteBuffer buffer) {
+        while (buffer.hasRemaining() && buffer.get() != '\n') {
+            // skip to the next line
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: DeadEndDetector
+ * Description: The DeadEndDetector allows the caller to find out right after
+ * a capture that the pawns left can no longer all be captured. The proofs of
+ * the PuzzleAnalyzer are tried first, a search with a small node limit only
+ * runs when they prove nothing. A DeadEndDetector is not thread safe, use one
+ * per game.
+ */
+
+package model;
+
+public class DeadEndDetector {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // a few hundred microseconds at most on a 29 pawn board; harder positions
+    // are reported as unknown
+    static final long searchNodeLimit = 4000;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private Solver solver = null; // created on the first search
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a DeadEndDetector object
+     * Pre condition: none
+     * Post condition: DeadEndDetector object is created
+     */
+    public DeadEndDetector() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to check a position
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return what is known about the pawns left
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return Solver.unsolvable for a dead end, Solver.solvable if the pawns
+     * can still be captured, Solver.unknown if the search gave up
+     */
+    public int check(int bishop, long pawns) {
+        if (pawns == 0) {
+            return Solver.solvable;
+        }
+        if (isDeadEnd(bishop, pawns)) {
+            return Solver.unsolvable;
+        }
+
+        if (solver == null) {
+            solver = new Solver();
+            solver.setNodeLimit(searchNodeLimit);
+        }
+        return solver.solve(bishop, pawns);
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to prove a dead end without a search
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return true only if the pawns can not all be captured;
+     * false means nothing was proved (see PuzzleAnalyzer.findProof())
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return a boolean value
+     */
+    public static boolean isDeadEnd(int bishop, long pawns) {
+        return PuzzleAnalyzer.findProof(bishop, pawns) != PuzzleAnalyzer.noProof;
+    }
+
+}
@@ -0,0 +1,294 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: ExternalSorter
+ * Description: The ExternalSorter allows the caller to sort and deduplicate
+ * more puzzle ids than fit in memory. Ids are collected in a buffer of fixed
+ * size; a full buffer is sorted (on every core) and written to a temporary
+ * run file (see PuzzleSet) by a background thread while the caller fills a
+ * second buffer. finish() merges the runs into one sorted set, dropping
+ * duplicates, at most 64 runs at a time: with more runs, groups are merged
+ * into longer runs first. Memory use is the two buffers, 16 bytes per id of
+ * the run size, whatever the total.
+ */
+
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class ExternalSorter {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    public static final int defaultRunSize = 1 << 23; // 8M ids, 2 x 64 MB
+
+    static final int maxFanIn = 64; // runs merged at once
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private final File tempDir;
+    private long[] buffer; // filled by the caller
+    private long[] spare; // sorted and written by the spill thread
+    private int size = 0;
+    private long added = 0;
+    private List<File> runs = new ArrayList<>();
+
+    private ExecutorService spiller = null;
+    private Future<?> pending = null; // the spill in progress
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create an ExternalSorter object
+     * Pre condition: newTempDir must exist, runSize must be 1 or more
+     * Post condition: ExternalSorter object is created with an empty buffer
+     * @param newTempDir specifies the directory of the run files
+     * @param runSize specifies the number of ids sorted in memory
+     */
+    public ExternalSorter(File newTempDir, int runSize) {
+        tempDir = newTempDir;
+        buffer = new long[runSize];
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public long getAdded() {
+        return added;
+    }
+
+    public int getRunCount() {
+        return runs.size() + (pending != null ? 1 : 0);
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to add an id
+     * Pre condition: id must be 0 or more
+     * Post condition: the id is buffered; a full buffer is handed to the
+     * spill thread
+     * @param id specifies the id
+     * @throws IOException if a run can not be written
+     */
+    public void add(long id) throws IOException {
+        if (size == buffer.length) {
+            spill();
+        }
+        buffer[size++] = id;
+        added++;
+    }
+
+    /**
+     * Description: allow the caller to write the sorted set
+     * Pre condition: none
+     * Post condition: every id added is in the file once, in ascending
+     * order; the runs are deleted, the spill thread is stopped and the
+     * sorter is empty again
+     * @param file specifies the set file to write
+     * @return a long, the number of distinct ids
+     * @throws IOException if a file can not be read or written
+     */
+    public long finish(String file) throws IOException {
+        long count;
+        try {
+            if (runs.isEmpty() && pending == null) {
+                // everything fits in the buffer, no run is needed
+                Arrays.parallelSort(buffer, 0, size);
+                count = write(buffer, size, file);
+            } else {
+                spill();
+                waitForSpill();
+
+                // merge groups until one pass is left
+                while (runs.size() > maxFanIn) {
+                    List<File> merged = new ArrayList<>();
+                    for (int i = 0; i < runs.size(); i += maxFanIn) {
+                        List<File> group = runs.subList(i, Math.min(i + maxFanIn, runs.size()));
+                        File run = createRun();
+                        merge(group, run.getPath());
+                        for (File f : group) {
+                            f.delete();
+                        }
+                        merged.add(run);
+                    }
+                    runs = merged;
+                }
+                count = merge(runs, file);
+            }
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+            runs.clear();
+            size = 0;
+            added = 0;
+            spare = null;
+            if (spiller != null) {
+                spiller.shutdown();
+                spiller = null;
+            }
+        }
+        return count;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to hand the buffer to the spill thread
+     * Pre condition: none
+     * Post condition: the previous spill is finished, the buffers are
+     * swapped and the full one is being sorted and written to a run
+     * @throws IOException if the previous run could not be written
+     */
+    private void spill() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        waitForSpill();
+
+        final long[] full = buffer;
+        final int fullSize = size;
+        final File run = createRun();
+        buffer = (spare != null) ? spare : new long[full.length];
+        spare = full;
+        size = 0;
+
+        if (spiller == null) {
+            spiller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "sort-spill");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        pending = spiller.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                Arrays.parallelSort(full, 0, fullSize);
+                write(full, fullSize, run.getPath());
+                return null;
+            }
+        });
+        runs.add(run);
+    }
+
+    private void waitForSpill() throws IOException {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while sorting", e);
+        } catch (ExecutionException e) {
+            throw new IOException("writing a run failed", e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+
+    private File createRun() throws IOException {
+        File run = File.createTempFile("run-", ".set", tempDir);
+        run.deleteOnExit();
+        return run;
+    }
+
+    private static long write(long[] ids, int length, String file) throws IOException {
+        try (PuzzleSet.Writer writer = new PuzzleSet.Writer(file)) {
+            for (int i = 0; i < length; i++) {
+                writer.add(ids[i]);
+            }
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Description: allow the caller to merge runs
+     * Pre condition: every run is sorted
+     * Post condition: the runs are merged into the file, an id found in
+     * several runs is written once; the smallest head is kept on top of a
+     * heap, so an id costs log2(runs) comparisons
+     * @param group specifies the runs
+     * @param file specifies the set file to write
+     * @return a long, the number of distinct ids
+     * @throws IOException if a file can not be read or written
+     */
+    private static long merge(List<File> group, String file) throws IOException {
+        int k = group.size();
+        PuzzleSet.Reader[] readers = new PuzzleSet.Reader[k];
+        long[] heads = new long[k];
+        int[] heap = new int[k]; // reader indices, least head first
+        int heapSize = 0;
+        try (PuzzleSet.Writer writer = new PuzzleSet.Writer(file)) {
+            for (int i = 0; i < k; i++) {
+                readers[i] = new PuzzleSet.Reader(group.get(i).getPath());
+                heads[i] = readers[i].next();
+                if (heads[i] != PuzzleId.noId) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(heap, heapSize, heads, i);
+            }
+
+            while (heapSize > 0) {
+                int top = heap[0];
+                writer.add(heads[top]);
+                heads[top] = readers[top].next();
+                if (heads[top] == PuzzleId.noId) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, heads, 0);
+            }
+            return writer.getCount();
+        } finally {
+            for (int i = 0; i < k; i++) {
+                if (readers[i] != null) {
+                    readers[i].close();
+                }
+            }
+        }
+    }
+
+    private static void siftDown(int[] heap, int heapSize, long[] heads, int i) {
+        int item = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heads[heap[child + 1]] < heads[heap[child]]) {
+                child++;
+            }
+            if (heads[heap[child]] >= heads[item]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = item;
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: GameLog
+ * Description: The GameLog allows the caller to record a play session as a
+ * compact binary event log, one file per session.
+ *
+ * Every event is one byte, op (2 bits) and arg (6 bits):
+ *   00 ssssss  MOVE     the bishop captured the pawn on square s (y * 8 + x)
+ *   01 000000  UNDO     the last move was undone
+ *   01 000001  MISS     a click that was not a valid move
+ *   01 000010  END      the game is over (last level solved)
+ *   01 000011  REDO     the last undone move was made again
+ *   01 000100  JUMP     back or forward to a move, followed by 1 byte ply
+ *   10 llllll  LEVEL    level l starts, level 0 starts a new game
+ *   11 bbbbbb  PUZZLE   bishop on square b, followed by the 8 byte pawn mask
+ */
+
+package model;
+
+import controller.IOExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameLog {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final String logDirectory = "./dataset/log";
+
+    static final int opMove = 0;
+    static final int opControl = 1;
+    static final int opLevel = 2;
+    static final int opPuzzle = 3;
+
+    static final int argUndo = 0;
+    static final int argMiss = 1;
+    static final int argEnd = 2;
+    static final int argRedo = 3;
+    static final int argJump = 4;
+
+    private static final AtomicInteger sessionCounter = new AtomicInteger();
+    private static final List<GameLog> openLogs = new ArrayList<>();
+
+    static {
+        // write what is left when the program exits in the middle of a game
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                synchronized (openLogs) {
+                    for (int i = 0; i < openLogs.size(); i++) {
+                        GameLog log = openLogs.get(i);
+                        log.append(log.takePending());
+                    }
+                }
+            }
+        }));
+    }
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private String file; // the log file of this session
+    private byte[] buffer = new byte[256]; // events not written yet
+    private int size = 0;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a GameLog object
+     * Pre condition: none
+     * Post condition: GameLog object is created for a new session file
+     */
+    public GameLog() {
+        file = String.format("%s/game-%d-%d.log", logDirectory,
+                System.currentTimeMillis(), sessionCounter.incrementAndGet());
+
+        synchronized (openLogs) {
+            openLogs.add(this);
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    public void logMove(Position pos) {
+        add(opMove, pos.getIndex());
+    }
+
+    public void logUndo() {
+        add(opControl, argUndo);
+    }
+
+    public void logMiss() {
+        add(opControl, argMiss);
+    }
+
+    public void logRedo() {
+        add(opControl, argRedo);
+    }
+
+    public synchronized void logJump(int ply) {
+        add(opControl, argJump);
+        addByte((byte) ply);
+    }
+
+    public void logEnd() {
+        add(opControl, argEnd);
+    }
+
+    public void logLevel(int level) {
+        // 6 bits; the endless levels past 63 are all logged as 63, a 0 
+        // would start a new session on replay
+        add(opLevel, Math.min(level, 0x3f));
+    }
+
+    /**
+     * Description: allow the caller to log the puzzle that is played
+     * Pre condition: bishopPos can not be null
+     * Post condition: a PUZZLE event with the pawn mask is added
+     * @param bishopPos specifies the bishop's start position
+     * @param pawns specifies the pawn bitmask
+     */
+    public synchronized void logPuzzle(Position bishopPos, long pawns) {
+        add(opPuzzle, bishopPos.getIndex());
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            addByte((byte) (pawns >>> shift));
+        }
+    }
+
+    /**
+     * Concept: Writing to files.
+     * Description: allow the caller to write the pending events
+     * Pre condition: object must exist
+     * Post condition: the pending events are appended to the session file on
+     * the I/O thread
+     */
+    public void flush() {
+        final byte[] pending = takePending();
+        if (pending.length == 0) {
+            return;
+        }
+
+        IOExecutor.submit(new Runnable() {
+            public void run() {
+                append(pending);
+            }
+        }, null);
+    }
+
+    /**
+     * Description: allow the caller to close the log
+     * Pre condition: object must exist
+     * Post condition: the pending events are written, no more events should
+     * be added
+     */
+    public void close() {
+        flush();
+        synchronized (openLogs) {
+            openLogs.remove(this);
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    private synchronized void add(int op, int arg) {
+        addByte((byte) ((op << 6) | (arg & 0x3f)));
+    }
+
+    private synchronized void addByte(byte b) {
+        if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, size * 2);
+        }
+        buffer[size++] = b;
+    }
+
+    private synchronized byte[] takePending() {
+        byte[] pending = Arrays.copyOf(buffer, size);
+        size = 0;
+        return pending;
+    }
+
+    /**
+     * Concept: Writing to files.
+     * Description: allow the caller to append bytes to the session file
+     * Pre condition: must run on the I/O thread or at shutdown
+     * Post condition: bytes are appended, the log directory is created if
+     * needed
+     * @param bytes specifies the events to append
+     */
+    private void append(byte[] bytes) {
+        if (bytes.length == 0) {
+            return;
+        }
+
+        try {
+            new File(logDirectory).mkdirs();
+            Files.write(Paths.get(file), bytes, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("ERROR: writing to file " + file);
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: GameReplay
+ * Description: The GameReplay allows the caller to re-run a binary game log
+ * (see GameLog) through a CaptureState and collect the statistics of every
+ * session, e.g. to audit scores or reproduce a bug.
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameReplay {
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // the state every event is replayed through, it has no manager
+    private CaptureState state = new CaptureState(null);
+
+    private List<Session> sessions = new ArrayList<>();
+    private Session current = null;
+
+    // totals over all replayed logs
+    long events = 0;
+    long rejectedMoves = 0; // logged moves the rules do not allow
+    long rejectedUndos = 0; // logged undos/redos with nothing to undo/redo
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a GameReplay object
+     * Pre condition: none
+     * Post condition: GameReplay object is created with no sessions, its
+     * state does not check for dead ends
+     */
+    public GameReplay() {
+        // the dead end check is for the player, a replay only needs the rules
+        state.setDeadEndCheck(false);
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves;
+    }
+
+    public long getRejectedUndos() {
+        return rejectedUndos;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to replay the bytes of a log
+     * Pre condition: data must hold whole events
+     * Post condition: every event is applied to the state, sessions are added
+     * for each new game (LEVEL 0)
+     * @param data specifies the log bytes
+     * @param length specifies the number of bytes to replay
+     */
+    public void replay(byte[] data, int length) {
+        int i = 0;
+        while (i < length) {
+            int b = data[i++] & 0xff;
+            int op = b >>> 6;
+            int arg = b & 0x3f;
+            events++;
+
+            switch (op) {
+                case GameLog.opMove:
+                    replayMove(arg);
+                    break;
+                case GameLog.opControl:
+                    if (arg == GameLog.argJump) {
+                        if (i + 1 > length) {
+                            return;
+                        }
+                        replayJump(data[i++] & 0xff);
+                        break;
+                    }
+                    replayControl(arg);
+                    break;
+                case GameLog.opLevel:
+                    if (arg == 0 || current == null) {
+                        current = new Session();
+                        sessions.add(current);
+                    }
+                    current.level = arg;
+                    break;
+                default: // GameLog.opPuzzle
+                    if (i + 8 > length) {
+                        return;
+                    }
+                    long pawns = 0L;
+                    for (int k = 0; k < 8; k++) {
+                        pawns = (pawns << 8) | (data[i++] & 0xff);
+                    }
+                    state.loadPuzzle(arg, pawns);
+                    if (current != null) {
+                        current.puzzles++;
+                    }
+                    break;
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    private void replayMove(int square) {
+        if (current == null || state.getBishopPosition() == null) {
+            rejectedMoves++;
+            return;
+        }
+
+        Position pos = Position.of(square);
+        if (!state.isValidMove(pos)) {
+            rejectedMoves++;
+            return;
+        }
+
+        state.movePosition(pos);
+        current.clicks++;
+        current.moves++;
+        if (state.isGameOver()) {
+            current.solved++;
+        }
+    }
+
+    private void replayJump(int ply) {
+        if (current == null) {
+            return;
+        }
+
+        int count = state.getMoveCount();
+        if (!state.jumpTo(ply)) {
+            rejectedUndos++;
+            return;
+        }
+        if (ply < count) {
+            current.undos += count - ply;
+        } else {
+            current.moves += ply - count;
+            if (state.isGameOver()) {
+                current.solved++;
+            }
+        }
+    }
+
+    private void replayControl(int arg) {
+        if (current == null) {
+            return;
+        }
+
+        switch (arg) {
+            case GameLog.argUndo:
+                if (state.isPathEmpty()) {
+                    rejectedUndos++;
+                    return;
+                }
+                state.undo();
+                current.undos++;
+                break;
+            case GameLog.argRedo:
+                if (!state.canRedo()) {
+                    rejectedUndos++;
+                    return;
+                }
+                state.redo();
+                current.moves++;
+                if (state.isGameOver()) {
+                    current.solved++;
+                }
+                break;
+            case GameLog.argMiss:
+                current.clicks++;
+                break;
+            case GameLog.argEnd:
+                current.isFinished = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Class
+    // -----------------------------------------------------------------------
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Session
+     * Description: the statistics of one replayed game
+     */
+    public static class Session {
+        int level = 0; // the last level reached
+        int puzzles = 0; // puzzles loaded
+        int solved = 0; // puzzles solved
+        int clicks = 0;
+        int moves = 0;
+        int undos = 0;
+        boolean isFinished = false; // all levels solved
+
+        /**
+         * Description: allow the caller to get the score of the session
+         * Pre condition: none
+         * Post condition: return the score, computed like the status bar
+         * @return an integer, the score
+         */
+        public int getScore() {
+            return moves * 4 + clicks - undos * 2;
+        }
+
+        public String toString() {
+            return String.format("level %d, solved %d/%d, C/M/U %d/%d/%d, score %d%s",
+                    level, solved, puzzles, clicks, moves, undos, getScore(),
+                    isFinished ? ", finished" : "");
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: HammingIndex
+ * Description: The HammingIndex allows the caller to find the puzzles whose
+ * pawns are nearly the same as a given puzzle's. The distance of two puzzles
+ * is the number of squares that have a pawn in one and not in the other
+ * (Long.bitCount of the xor of the masks), the least over the 8 images of
+ * the board, so a puzzle with one more pawn is at 1 and one with a pawn
+ * moved is at 2; the bishop is not counted. The masks are kept in a BK-tree
+ * in primitive arrays: every child is filed under its distance to its
+ * parent, and by the triangle inequality a search for distance k only goes
+ * down the children filed within k of the parent's distance to the query.
+ * Checking a puzzle against the puzzles of a game takes microseconds.
+ */
+
+package model;
+
+import java.util.Arrays;
+
+public class HammingIndex {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // the distance of puzzles that play the same: a pawn added, removed or
+    // moved
+    public static final int repeatDistance = 2;
+
+    static final int initialCapacity = 64;
+    static final int none = -1;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // per entry, in the order added; entry 0 is the root
+    private long[] pawns = new long[initialCapacity];
+    private byte[] bishops = new byte[initialCapacity];
+    private byte[] distances = new byte[initialCapacity]; // to the parent
+    private int[] firstChild = new int[initialCapacity];
+    private int[] nextSibling = new int[initialCapacity];
+    private int size = 0;
+
+    // used by search(): the nodes to visit, and the last search that found
+    // each entry, so an entry found by several images is returned once
+    private int[] stack = new int[initialCapacity];
+    private int[] marks = new int[initialCapacity];
+    private int searchCount = 0;
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getBishop(int entry) {
+        return bishops[entry];
+    }
+
+    public long getPawns(int entry) {
+        return pawns[entry];
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to add a puzzle
+     * Pre condition: bishop must be between 0 and 63
+     * Post condition: the puzzle is a new entry of the tree, even if the
+     * same puzzle was added before
+     * @param bishop specifies the bishop square
+     * @param newPawns specifies the pawn bitmask
+     * @return an integer, the entry; entries are numbered from 0 in the
+     * order added
+     */
+    public int add(int bishop, long newPawns) {
+        if (size == pawns.length) {
+            grow();
+        }
+        int entry = size++;
+        pawns[entry] = newPawns;
+        bishops[entry] = (byte) bishop;
+        firstChild[entry] = none;
+        nextSibling[entry] = none;
+        if (entry == 0) {
+            return entry;
+        }
+
+        // go down the children at the same distance, file it under the
+        // first node that has none
+        int node = 0;
+        while (true) {
+            int d = Long.bitCount(pawns[node] ^ newPawns);
+            int child = firstChild[node];
+            while (child != none && distances[child] != d) {
+                child = nextSibling[child];
+            }
+            if (child == none) {
+                distances[entry] = (byte) d;
+                nextSibling[entry] = firstChild[node];
+                firstChild[node] = entry;
+                return entry;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Description: allow the caller to check for a near repeat
+     * Pre condition: distance must be 0 or more
+     * Post condition: return a boolean value; the search stops at the first
+     * puzzle found
+     * @param query specifies the pawn bitmask
+     * @param distance specifies the largest distance
+     * @return true if a puzzle within the distance was added, false otherwise
+     */
+    public boolean contains(long query, int distance) {
+        return search(query, distance, null, 1) > 0;
+    }
+
+    /**
+     * Description: allow the caller to find every puzzle within a distance
+     * Pre condition: distance must be 0 or more, found can not be null
+     * Post condition: the entries within the distance are stored in found,
+     * in no order, until it is full
+     * @param query specifies the pawn bitmask
+     * @param distance specifies the largest distance
+     * @param found specifies where the entries are stored
+     * @return an integer, the number of entries stored
+     */
+    public int search(long query, int distance, int[] found) {
+        return search(query, distance, found, found.length);
+    }
+
+    /**
+     * Description: allow the caller to remove every puzzle
+     * Pre condition: none
+     * Post condition: the index is empty, its arrays are kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to search the tree for every image of
+     * the query
+     * Pre condition: limit must be 1 or more
+     * Post condition: the entries found are stored in found, if not null
+     * @return an integer, the number of entries found, at most limit
+     */
+    private int search(long query, int distance, int[] found, int limit) {
+        if (size == 0 || limit == 0) {
+            return 0;
+        }
+        if (++searchCount == 0) {
+            // the marks have wrapped, start over
+            Arrays.fill(marks, 0);
+            searchCount = 1;
+        }
+
+        int count = 0;
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            long image = Bitboard.transform(symmetry, query);
+
+            // a node is pushed at most once, so the stack holds size nodes
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                int d = Long.bitCount(pawns[node] ^ image);
+                if (d <= distance && marks[node] != searchCount) {
+                    marks[node] = searchCount;
+                    if (found != null) {
+                        found[count] = node;
+                    }
+                    if (++count == limit) {
+                        return count;
+                    }
+                }
+                for (int child = firstChild[node]; child != none;
+                        child = nextSibling[child]) {
+                    if (Math.abs(distances[child] - d) <= distance) {
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private void grow() {
+        int capacity = pawns.length * 2;
+        pawns = Arrays.copyOf(pawns, capacity);
+        bishops = Arrays.copyOf(bishops, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        stack = Arrays.copyOf(stack, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+    }
+
+}
@@ -0,0 +1,227 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: MoveStack
+ * Description: The MoveStack allows the caller to keep the moves of the
+ * bishop for undo and redo. A move is one int: the from square, the to square
+ * and a captured flag (from | to << 6 | captured << 12). Undone moves stay
+ * above the top of the stack until a new move is pushed, so they can be
+ * redone. Nothing is allocated unless the stack has to grow.
+ *
+ * Every move also keeps a snapshot, the pawn bitmask before the move. With
+ * the from square of the move it is the whole position, so the position at
+ * any ply can be restored in one step (see Board.jumpTo()).
+ *
+ * A fork shares the array with the stack it was forked from (copy on write):
+ * undo, redo and reads never write to the array, and the first push on a
+ * shared array copies it.
+ */
+
+package model;
+
+public class MoveStack {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int squareMask = 0x3f;
+    static final int capturedFlag = 1 << 12;
+    static final int initialCapacity = 64;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // allocated by the public constructor only, a fork shares them
+    private int[] moves;
+    private long[] pawnsBefore; // snapshot per move
+    private int size = 0; // moves made
+    private int redoSize = 0; // moves made or undone, size <= redoSize
+    private boolean isShared = false; // moves may be used by another stack
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a MoveStack object
+     * Pre condition: none
+     * Post condition: an empty MoveStack object is created
+     */
+    public MoveStack() {
+        moves = new int[initialCapacity];
+        pawnsBefore = new long[initialCapacity];
+    }
+
+    /**
+     * Description: create a fork of a MoveStack object, see fork()
+     * Pre condition: other can not be null
+     * Post condition: the MoveStack shares the array of other
+     * @param other specifies the stack to fork
+     */
+    private MoveStack(MoveStack other) {
+        moves = other.moves;
+        pawnsBefore = other.pawnsBefore;
+        size = other.size;
+        redoSize = other.redoSize;
+        isShared = true;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    public static int encode(int from, int to, boolean captured) {
+        return from | (to << 6) | (captured ? capturedFlag : 0);
+    }
+
+    public static int from(int move) {
+        return move & squareMask;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & squareMask;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & capturedFlag) != 0;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to add a move
+     * Pre condition: object must exist
+     * Post condition: the move is on top of the stack, the undone moves can no
+     * longer be redone
+     * @param move specifies the encoded move
+     * @param pawns specifies the pawn bitmask before the move
+     */
+    public void push(int move, long pawns) {
+        if (isShared || size == moves.length) {
+            int length = (size == moves.length) ? moves.length * 2 : moves.length;
+            int[] newMoves = new int[length];
+            long[] newPawns = new long[length];
+            System.arraycopy(moves, 0, newMoves, 0, size);
+            System.arraycopy(pawnsBefore, 0, newPawns, 0, size);
+            moves = newMoves;
+            pawnsBefore = newPawns;
+            isShared = false;
+        }
+        pawnsBefore[size] = pawns;
+        moves[size++] = move;
+        redoSize = size;
+    }
+
+    /**
+     * Description: allow the caller to fork the stack
+     * Pre condition: object must exist
+     * Post condition: return a stack with the same moves, made and undone, in
+     * constant time; pushing on either stack does not change the other
+     * @return a MoveStack
+     */
+    public MoveStack fork() {
+        isShared = true;
+        return new MoveStack(this);
+    }
+
+    /**
+     * Description: allow the caller to undo the last move
+     * Pre condition: the stack can not be empty
+     * Post condition: the move is removed from the stack and can be redone
+     * @return the encoded move
+     */
+    public int undo() {
+        return moves[--size];
+    }
+
+    /**
+     * Description: allow the caller to redo the last undone move
+     * Pre condition: canRedo() must be true
+     * Post condition: the move is back on top of the stack
+     * @return the encoded move
+     */
+    public int redo() {
+        return moves[size++];
+    }
+
+    /**
+     * Description: allow the caller to undo or redo many moves at once
+     * Pre condition: newSize must be between 0 and limit()
+     * Post condition: size() is newSize, the moves above it can be redone
+     * @param newSize specifies the number of moves made
+     */
+    public void setSize(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * Description: allow the caller to forget the undone moves
+     * Pre condition: object must exist
+     * Post condition: canRedo() is false
+     */
+    public void clearRedo() {
+        redoSize = size;
+    }
+
+    /**
+     * Description: allow the caller to remove every move
+     * Pre condition: object must exist
+     * Post condition: the stack is empty, nothing can be redone
+     */
+    public void clear() {
+        size = 0;
+        redoSize = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean canRedo() {
+        return size < redoSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int limit() {
+        return redoSize;
+    }
+
+    /**
+     * Description: allow the caller to get a move
+     * Pre condition: i must be between 0 and size() - 1
+     * Post condition: return the move, 0 is the first move
+     * @param i specifies the index of the move
+     * @return the encoded move
+     */
+    public int get(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Description: allow the caller to get the snapshot of a move
+     * Pre condition: i must be between 0 and limit() - 1
+     * Post condition: return the pawn bitmask before the move
+     * @param i specifies the index of the move
+     * @return a long, the pawn bitmask
+     */
+    public long getPawnsBefore(int i) {
+        return pawnsBefore[i];
+    }
+
+    /**
+     * Description: allow the caller to get the last move
+     * Pre condition: the stack can not be empty
+     * Post condition: return the move on top of the stack
+     * @return the encoded move
+     */
+    public int peek() {
+        return moves[size - 1];
+    }
+
+}
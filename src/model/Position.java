@@ -1,75 +1,112 @@
 /**
  * Project Name: POC_Chess_Puzzle
  * Class Name: Position
- * Description: The Position allows the caller to mutate and access the 
- * position of a piece.
+ * Description: The Position allows the caller to access the position of a 
+ * piece. Positions are immutable and shared, one per square of the board.
  */
 package model;
 
 public class Position {
     
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+    
+    // the 64 squares of the board, by index (y * 8 + x); a square has only 
+    // one Position object, so positions can be compared with ==
+    private static final Position[] squares = new Position[64];
+    
+    static {
+        for (int index = 0; index < 64; index++) {
+            squares[index] = new Position(index % 8, index / 8);
+        }
+    }
+    
     // -----------------------------------------------------------------------
     // Class Instance Variables
     // -----------------------------------------------------------------------
     
-    private int x; // x position
-    private int y; // y position
+    private final int x; // x position
+    private final int y; // y position
+    private final String text; // "x y", as in the puzzle files
 
     // -----------------------------------------------------------------------
     // Constructor
     // -----------------------------------------------------------------------
     
     /**
-     * Description: allow the caller to create a Position object
-     * Pre condition: x and y can not be null
+     * Description: create the Position object of a square, used only to fill
+     * the squares table
+     * Pre condition: x and y must be between 0 and 7
      * Post condition: Position object is created
      * @param x specifies the x position
      * @param y specifies the y position
      */    
-    public Position(int x, int y) {
+    private Position(int x, int y) {
         this.x = x;
         this.y = y;
+        this.text = x + " " + y;
+    }
+    
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+    
+    /**
+     * Description: allow the caller to get the Position of a square
+     * Pre condition: x and y must be between 0 and 7
+     * Post condition: return the shared Position object, nothing is created
+     * @param x specifies the x position
+     * @param y specifies the y position
+     * @return a Position object
+     */
+    public static Position of(int x, int y) {
+        return squares[y * 8 + x];
+    }
+    
+    /**
+     * Description: allow the caller to get the Position of a square index
+     * Pre condition: index must be between 0 and 63
+     * Post condition: return the shared Position object, nothing is created
+     * @param index specifies the square index (y * 8 + x)
+     * @return a Position object
+     */
+    public static Position of(int index) {
+        return squares[index];
     }
     
     /**
-     * Description: allow the caller to create a Position object using a string
+     * Description: allow the caller to get a Position from its string
      * representation
      * Pre condition: line can not be null
-     * Post condition: Position object is created
-     * @param line specifies the new x and y position
+     * Post condition: return the shared Position object
+     * @param line specifies the x and y position, e.g. "4 2"
+     * @return a Position object
+     * @throws NumberFormatException if line is not a square of the board
      */      
-    public Position(String line) {
-        // read a max of 2 numbers
-        String[] list = line.split(" ", 2);
+    public static Position parse(String line) {
+        // read a max of 2 numbers, separated by spaces
+        int[] xy = new int[2];
+        int n = 0;
+        int i = 0;
+        while (i < line.length() && n < 2) {
+            char c = line.charAt(i++);
+            if (c >= '0' && c <= '9') {
+                xy[n] = xy[n] * 10 + (c - '0');
+                if (i == line.length() || line.charAt(i) == ' ') {
+                    n++;
+                }
+            } else if (c != ' ') {
+                throw new NumberFormatException("not a position: " + line);
+            }
+        }
+        if (n != 2 || xy[0] > 7 || xy[1] > 7) {
+            throw new NumberFormatException("not a position: " + line);
+        }
         
-        this.x = Integer.parseInt(list[0]);
-        this.y = Integer.parseInt(list[1]);
-    }
-
-    // -----------------------------------------------------------------------
-    // Mutator (aka Setter)
-    // -----------------------------------------------------------------------
-
-    /**
-     * Description: set the new x position
-     * Pre condition: object must exist
-     * Post condition: set a new x position to the object
-     * @param newX specifies the new x position
-     */    
-    public void setX(int newX) {
-        this.x = newX;
+        return of(xy[0], xy[1]);
     }
 
-    /**
-     * Description: set the new y position
-     * Pre condition: object must exist
-     * Post condition: set a new y position to the object
-     * @param newY specifies the new y position
-     */        
-    public void setY(int newY) {
-        this.y = newY;
-    }    
-
     // -----------------------------------------------------------------------
     // Accessor (aka Getter)
     // -----------------------------------------------------------------------
@@ -94,6 +131,16 @@ public class Position {
         return y;
     }   
     
+    /**
+     * Description: get the square index
+     * Pre condition: object must exist
+     * Post condition: return the square index
+     * @return y * 8 + x
+     */            
+    public int getIndex() {
+        return y * 8 + x;
+    }   
+    
     // -----------------------------------------------------------------------
     // Public Methods
     // -----------------------------------------------------------------------
@@ -105,8 +152,7 @@ public class Position {
      * @return a string, s its own representation 
      */
     public String toString() {
-        String s = String.format("%d %d", x, y);
-        return s;
+        return text;
     }
     
     /**
@@ -114,11 +160,11 @@ public class Position {
      * Pre condition: both objects must exist
      * Post condition: return a boolean value
      * @param pos specifies another Position object
-     * @return true if the x and y values of pos are equal to the object, false
-     * otherwise
+     * @return true if pos is the same square as the object, false otherwise
      */    
     public boolean isEqual(Position pos) {
-        return (x == pos.x && y == pos.y);
+        // there is one Position per square
+        return (this == pos);
     }
     
     /**
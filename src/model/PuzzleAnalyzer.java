@@ -0,0 +1,215 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleAnalyzer
+ * Description: The PuzzleAnalyzer allows the caller to look at the structure
+ * of a puzzle without solving it. The pieces are the nodes of a graph, two
+ * pieces on a common diagonal are joined by an edge, and a solution is a path
+ * from the bishop through every pawn. Some graphs can not hold such a path,
+ * which proves the puzzle unsolvable in a few hundred nanoseconds.
+ */
+
+package model;
+
+public class PuzzleAnalyzer {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    // proofs of unsolvability, see findProof()
+    public static final int noProof = 0;
+    public static final int wrongColour = 1; // a pawn the bishop never reaches
+    public static final int isolatedPawn = 2; // a pawn with no neighbour
+    public static final int tooManyLeaves = 3; // pawns with one neighbour
+    public static final int trappedPawn = 4; // only neighbour is the bishop
+    public static final int disconnected = 5; // pawns out of the bishop's reach
+
+    static final String[] proofNames = { "", "pawn on the other colour",
+            "pawn with no diagonal neighbour", "more than one pawn with one neighbour",
+            "pawn seen only by the bishop", "pawns not connected to the bishop" };
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private int proof = noProof;
+    private int pawns = 0;
+    private int edges = 0; // pairs of pieces on a common diagonal
+    private int components = 0; // groups of pieces joined by edges
+    private int leaves = 0; // pawns with one neighbour
+    private int maxDegree = 0;
+    private int bishopDegree = 0; // first captures to choose from
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to analyze a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: PuzzleAnalyzer object is created with the metrics of
+     * the puzzle and the proof, if any
+     * @param bishop specifies the bishop square
+     * @param pawnMask specifies the pawn bitmask
+     */
+    public PuzzleAnalyzer(int bishop, long pawnMask) {
+        long pieces = pawnMask | (1L << bishop);
+        pawns = Long.bitCount(pawnMask);
+        proof = findProof(bishop, pawnMask);
+
+        int degrees = 0;
+        long rest = pieces;
+        while (rest != 0) {
+            int square = Long.numberOfTrailingZeros(rest);
+            rest &= rest - 1;
+
+            int degree = Long.bitCount(Bitboard.diagonals[square] & pieces);
+            degrees += degree;
+            maxDegree = Math.max(maxDegree, degree);
+            if (square == bishop) {
+                bishopDegree = degree;
+            } else if (degree == 1) {
+                leaves++;
+            }
+        }
+        edges = degrees / 2;
+
+        rest = pieces;
+        while (rest != 0) {
+            rest &= ~reach(Long.numberOfTrailingZeros(rest), rest);
+            components++;
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public int getProof() {
+        return proof;
+    }
+
+    public boolean isUnsolvable() {
+        return proof != noProof;
+    }
+
+    public int getPawns() {
+        return pawns;
+    }
+
+    public int getEdges() {
+        return edges;
+    }
+
+    public int getComponents() {
+        return components;
+    }
+
+    public int getLeaves() {
+        return leaves;
+    }
+
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    public int getBishopDegree() {
+        return bishopDegree;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    public String toString() {
+        return String.format(
+                "pawns %d, edges %d, components %d, leaves %d, max degree %d, bishop degree %d%s",
+                pawns, edges, components, leaves, maxDegree, bishopDegree,
+                isUnsolvable() ? ", unsolvable: " + getProofName(proof) : "");
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    public static String getProofName(int proof) {
+        return proofNames[proof];
+    }
+
+    /**
+     * Description: allow the caller to prove a puzzle unsolvable without a
+     * search, e.g. to reject a candidate before solving it
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return the first proof found; noProof means nothing
+     * was proved, not that the puzzle is solvable
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return an integer, noProof or the proof
+     */
+    public static int findProof(int bishop, long pawns) {
+        // the bishop never leaves its colour
+        if ((pawns & ~Bitboard.sameColour(bishop)) != 0) {
+            return wrongColour;
+        }
+
+        // a pawn with no neighbour can not be on the path, a pawn with one
+        // neighbour must be its end, so there is at most one; a pawn seen
+        // only by the bishop is both the start and the end of the path
+        long pieces = pawns | (1L << bishop);
+        boolean isLast = Long.bitCount(pawns) == 1;
+        int leafCount = 0;
+        long rest = pawns;
+        while (rest != 0) {
+            int square = Long.numberOfTrailingZeros(rest);
+            rest &= rest - 1;
+
+            long neighbours = Bitboard.diagonals[square] & pieces;
+            if (neighbours == 0) {
+                return isolatedPawn;
+            }
+            if ((neighbours & (neighbours - 1)) == 0) {
+                if (++leafCount > 1) {
+                    return tooManyLeaves;
+                }
+                if (neighbours == (1L << bishop) && !isLast) {
+                    return trappedPawn;
+                }
+            }
+        }
+
+        // every pawn must be reachable from the bishop
+        if ((pawns & ~reach(bishop, pieces)) != 0) {
+            return disconnected;
+        }
+        return noProof;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get a component of the graph
+     * Pre condition: square is one of the pieces
+     * Post condition: return the pieces joined to square by a chain of edges
+     * @param square specifies the square to start from
+     * @param pieces specifies the nodes of the graph
+     * @return a long, the mask of the component
+     */
+    private static long reach(int square, long pieces) {
+        long reached = 1L << square;
+        long frontier = reached;
+        while (frontier != 0) {
+            long next = 0L;
+            while (frontier != 0) {
+                int s = Long.numberOfTrailingZeros(frontier);
+                frontier &= frontier - 1;
+                next |= Bitboard.diagonals[s] & pieces;
+            }
+            frontier = next & ~reached;
+            reached |= frontier;
+        }
+        return reached;
+    }
+
+}
@@ -0,0 +1,329 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleCatalog
+ * Description: The PuzzleCatalog allows the caller to get puzzles from
+ * memory. A background thread loads the index and every puzzle file once,
+ * then watches the dataset directory and loads the files that other
+ * processes add or change. Puzzles are kept in primitive arrays per pawn
+ * count, indexed by file number, and shared by every game.
+ */
+
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+
+public class PuzzleCatalog {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final String datasetDirectory = "./dataset";
+    static final String puzzleDirectory = "./dataset/puzzle";
+    static final String indexFile = "index.txt";
+
+    private static PuzzleCatalog instance = null;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // per pawn count, indexed by file number; bishop -1 means not loaded
+    private final byte[][] bishops = new byte[64][];
+    private final long[][] pawns = new long[64][];
+    private final int[] maxFileNumber = new int[64]; // from the index file
+
+    private volatile boolean isLoaded = false;
+
+    // used by the catalog thread only
+    private ByteBuffer readBuffer = null;
+    private final int[] squares = new int[66];
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the class to create the PuzzleCatalog object
+     * Pre condition: none
+     * Post condition: the catalog thread is started
+     */
+    private PuzzleCatalog() {
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                catalogLoop();
+            }
+        }, "puzzle-catalog");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the catalog
+     * Pre condition: none
+     * Post condition: return the process-wide catalog; the first call starts
+     * loading it in the background
+     * @return the PuzzleCatalog
+     */
+    public static synchronized PuzzleCatalog getInstance() {
+        if (instance == null) {
+            instance = new PuzzleCatalog();
+        }
+        return instance;
+    }
+
+    /**
+     * Description: allow the caller to check if the first load is done
+     * Pre condition: none
+     * Post condition: return a boolean value
+     * @return true if the index and puzzle files were loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        return isLoaded;
+    }
+
+    /**
+     * Description: allow the caller to get the last file number of a pawn
+     * count, as listed by the index file
+     * Pre condition: pawnNumber must be between 0 and 63
+     * Post condition: return the file number, 0 if there is none
+     * @param pawnNumber specifies the number of pawns
+     * @return an integer, the last file number
+     */
+    public synchronized int getMaxFileNumber(int pawnNumber) {
+        return maxFileNumber[pawnNumber];
+    }
+
+    /**
+     * Description: allow the caller to get a puzzle
+     * Pre condition: puzzle must hold 2 longs
+     * Post condition: puzzle[0] is the bishop square, puzzle[1] the pawn
+     * bitmask
+     * @param pawnNumber specifies the number of pawns
+     * @param fileNumber specifies the file number
+     * @param puzzle specifies where the puzzle is stored
+     * @return true if the puzzle is in the catalog, false otherwise
+     */
+    public synchronized boolean getPuzzle(int pawnNumber, int fileNumber,
+            long[] puzzle) {
+        byte[] b = bishops[pawnNumber];
+        if (b == null || fileNumber >= b.length || b[fileNumber] < 0) {
+            return false;
+        }
+        puzzle[0] = b[fileNumber];
+        puzzle[1] = pawns[pawnNumber][fileNumber];
+        return true;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the catalog thread to load and watch the dataset
+     * Pre condition: must only run on the catalog thread
+     * Post condition: loads everything, then loops forever on the watcher
+     */
+    private void catalogLoop() {
+        WatchService watcher = null;
+        try {
+            // register first, so files added while loading are not missed
+            watcher = FileSystems.getDefault().newWatchService();
+            register(watcher, datasetDirectory);
+            register(watcher, puzzleDirectory);
+        } catch (IOException e) {
+            System.out.println("ERROR: can not watch the dataset: " + e);
+        }
+
+        long start = System.nanoTime();
+        int count = loadAll();
+        isLoaded = true;
+        System.out.println(String.format(
+                "INFO: puzzle catalog loaded %d puzzles in %.0f ms",
+                count, (System.nanoTime() - start) / 1e6));
+
+        if (watcher == null) {
+            return;
+        }
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    loadAll();
+                    continue;
+                }
+
+                String name = event.context().toString();
+                if (name.equals(indexFile)) {
+                    loadIndex();
+                } else if (directory.endsWith("puzzle")) {
+                    loadPuzzle(directory.resolve(name).toString(), name);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private static void register(WatchService watcher, String directory)
+            throws IOException {
+        Paths.get(directory).register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Description: allow the catalog thread to load the whole dataset
+     * Pre condition: must only run on the catalog thread
+     * Post condition: the index and every puzzle file are loaded
+     * @return the number of puzzles loaded
+     */
+    private int loadAll() {
+        loadIndex();
+
+        File[] files = new File(puzzleDirectory).listFiles();
+        if (files == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < files.length; i++) {
+            if (loadPuzzle(files[i].getPath(), files[i].getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Description: allow the catalog thread to read the index file
+     * Pre condition: must only run on the catalog thread
+     * Post condition: maxFileNumber holds the index; a pawn count that is not
+     * in the index is set to 0
+     */
+    private void loadIndex() {
+        int[] max = new int[64];
+        synchronized (State.datasetLock) {
+            try {
+                readBuffer = DatasetParser.readFile(
+                        datasetDirectory + "/" + indexFile, readBuffer);
+            } catch (IOException e) {
+                System.out.println("ERROR: reading the index file");
+                return;
+            }
+        }
+
+        int[] pair = new int[2];
+        int result;
+        while ((result = DatasetParser.nextPair(readBuffer, pair))
+                != DatasetParser.endOfInput) {
+            if (result == DatasetParser.lineRead && pair[0] < 64) {
+                max[pair[0]] = pair[1];
+            }
+        }
+
+        synchronized (this) {
+            System.arraycopy(max, 0, maxFileNumber, 0, 64);
+        }
+    }
+
+    /**
+     * Description: allow the catalog thread to read a puzzle file
+     * Pre condition: must only run on the catalog thread
+     * Post condition: the puzzle is stored if the file is a complete puzzle;
+     * a file that is still being written is loaded by its next event
+     * @param file specifies the path of the file
+     * @param name specifies the file name, NN-NNNN.txt
+     * @return true if the puzzle was stored, false otherwise
+     */
+    private boolean loadPuzzle(String file, String name) {
+        int pawnNumber = parseNumber(name, 0, 2);
+        int fileNumber = parseNumber(name, 3, 7);
+        if (name.length() != 11 || name.charAt(2) != '-'
+                || !name.endsWith(".txt") || pawnNumber < 0 || pawnNumber > 63
+                || fileNumber < 0) {
+            return false;
+        }
+
+        int count;
+        try {
+            readBuffer = DatasetParser.readFile(file, readBuffer);
+            count = DatasetParser.parsePuzzle(readBuffer, squares);
+        } catch (IOException e) {
+            return false;
+        }
+        if (count != pawnNumber + 1) {
+            return false;
+        }
+
+        long mask = 0L;
+        for (int i = 1; i < count; i++) {
+            mask |= 1L << squares[i];
+        }
+        store(pawnNumber, fileNumber, squares[0], mask);
+        return true;
+    }
+
+    /**
+     * Description: allow the catalog thread to store a puzzle
+     * Pre condition: pawnNumber must be between 0 and 63
+     * Post condition: the arrays of the pawn count are grown if needed
+     * @param pawnNumber specifies the number of pawns
+     * @param fileNumber specifies the file number
+     * @param bishop specifies the bishop square
+     * @param mask specifies the pawn bitmask
+     */
+    private synchronized void store(int pawnNumber, int fileNumber, int bishop,
+            long mask) {
+        byte[] b = bishops[pawnNumber];
+        if (b == null || fileNumber >= b.length) {
+            int length = Math.max(fileNumber + 1, (b == null) ? 16 : b.length * 2);
+            byte[] newBishops = new byte[length];
+            long[] newPawns = new long[length];
+            Arrays.fill(newBishops, (byte) -1);
+            if (b != null) {
+                System.arraycopy(b, 0, newBishops, 0, b.length);
+                System.arraycopy(pawns[pawnNumber], 0, newPawns, 0, b.length);
+            }
+            bishops[pawnNumber] = newBishops;
+            pawns[pawnNumber] = newPawns;
+        }
+        bishops[pawnNumber][fileNumber] = (byte) bishop;
+        pawns[pawnNumber][fileNumber] = mask;
+    }
+
+    private static int parseNumber(String name, int from, int to) {
+        if (name.length() < to) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+}
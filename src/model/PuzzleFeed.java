@@ -0,0 +1,321 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleFeed
+ * Description: The PuzzleFeed allows the caller to play without an end: it
+ * makes the next puzzles (see PuzzleGenerator) in the background while the
+ * player plays the current one. The puzzles of the next few levels are
+ * made on a small pool of worker threads shared by all feeds, each level
+ * given to a worker when it is asked for, and kept in one slot per level;
+ * every puzzle taken asks for the level after the last. The levels are
+ * served in order: if the workers fall behind, the caller makes the level
+ * it waits for, which takes a few milliseconds, and the worker's puzzle of
+ * that level is dropped when it comes. Each level gets one more pawn and a
+ * higher least rating. A new feed cancels the work of the one before it.
+ */
+
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class PuzzleFeed {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int capacity = 4; // levels made ahead
+    static final long waitMillis = 5; // wait for a worker before making one
+    static final int firstPawns = 4; // pawns of level 0
+    static final int maxPawns = 24;
+    static final int maxRating = 10;
+    static final int maxRepeatTries = 8; // puzzles made to avoid a repeat
+
+    private static ThreadPoolExecutor workers = null;
+    private static PuzzleFeed current = null; // the last feed created
+
+    // one generator per thread, workers and callers alike
+    private static final ThreadLocal<PuzzleGenerator> generators =
+            new ThreadLocal<PuzzleGenerator>() {
+        @Override
+        protected PuzzleGenerator initialValue() {
+            return new PuzzleGenerator(System.nanoTime()
+                    ^ Thread.currentThread().getId());
+        }
+    };
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    // bishop, pawns and level of the puzzles made, level n in slot
+    // n % capacity; only the levels from nextServed to nextServed + capacity
+    // - 1 are asked for, so they never share a slot. Locked when used.
+    private final long[][] ready = new long[capacity][];
+    private int nextServed; // the level take() returns next
+    private int nextAsked; // the level refill() asks for next
+
+    // the work asked of the workers, cancelled by close()
+    private final Deque<Future<?>> pending = new ArrayDeque<>();
+    private volatile boolean isClosed = false;
+
+    // the puzzles made by this feed, see makeFresh(); locked when used
+    private final HammingIndex made = new HammingIndex();
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a PuzzleFeed object
+     * Pre condition: firstLevel must be 0 or more
+     * Post condition: PuzzleFeed object is created, the feed created before
+     * it is closed and the workers start on the first levels
+     * @param firstLevel specifies the level of the first puzzle
+     */
+    public PuzzleFeed(int firstLevel) {
+        nextServed = firstLevel;
+        nextAsked = firstLevel;
+        synchronized (PuzzleFeed.class) {
+            if (current != null) {
+                current.close();
+            }
+            current = this;
+        }
+        for (int i = 0; i < capacity; i++) {
+            refill();
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to take the next puzzle
+     * Pre condition: must not run on the Event Dispatch Thread, it may make
+     * the puzzle itself
+     * Post condition: puzzle[0] is set to the bishop square and puzzle[1] to
+     * the pawn bitmask of the next level, one more level is being made
+     * @param puzzle specifies the array the puzzle is returned in
+     * @return true if a puzzle was returned, false otherwise
+     */
+    public boolean take(long[] puzzle) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        int level;
+        long[] item;
+        synchronized (ready) {
+            level = nextServed;
+            int slot = level % capacity;
+            while (!isReady(ready[slot], level)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(ready, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            item = isReady(ready[slot], level) ? ready[slot] : null;
+            ready[slot] = null;
+            nextServed++;
+        }
+        refill();
+
+        if (item == null) {
+            // the workers are behind, make the level waited for here; the
+            // worker's puzzle of it is dropped when it comes
+            item = makeFresh(level);
+            System.out.println("INFO: endless puzzle not ready, made it here");
+        }
+        if (item == null) {
+            return false;
+        }
+
+        puzzle[0] = item[0];
+        puzzle[1] = item[1];
+        System.out.println(String.format(
+                "INFO: endless puzzle %d pawns, level %d, ready in %.3f ms",
+                Long.bitCount(item[1]), item[2], (System.nanoTime() - start) / 1e6));
+        return true;
+    }
+
+    /**
+     * Description: allow the caller to stop the feed
+     * Pre condition: none
+     * Post condition: the work not started is cancelled and removed from the
+     * pool, the work started makes no more puzzles; take() still works, it
+     * makes every puzzle itself
+     */
+    public void close() {
+        isClosed = true;
+        synchronized (pending) {
+            for (Future<?> f : pending) {
+                f.cancel(false);
+            }
+            pending.clear();
+        }
+        getWorkers().purge();
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the spec of a level
+     * Pre condition: level must be 0 or more
+     * Post condition: return a new spec, harder as the level grows
+     * @param level specifies the level
+     * @return a PuzzleSpec
+     */
+    public static PuzzleSpec getSpec(int level) {
+        PuzzleSpec spec = new PuzzleSpec(Math.min(firstPawns + level, maxPawns));
+        spec.setMinRating(Math.min(level / 2, maxRating));
+        return spec;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to have one more level made
+     * Pre condition: none
+     * Post condition: a worker makes the puzzle of the next level asked for
+     * and puts it in its slot, unless the feed is closed
+     */
+    private void refill() {
+        if (isClosed) {
+            return;
+        }
+        final int level;
+        synchronized (ready) {
+            level = nextAsked++;
+        }
+        Future<?> f = getWorkers().submit(new Runnable() {
+            public void run() {
+                if (isClosed) {
+                    return;
+                }
+                long[] item = makeFresh(level);
+                if (item != null && !isClosed) {
+                    put(item);
+                }
+            }
+        });
+        synchronized (pending) {
+            while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+                pending.pollFirst();
+            }
+            pending.addLast(f);
+        }
+    }
+
+    /**
+     * Description: allow the caller to hand a worker's puzzle to take()
+     * Pre condition: item must hold bishop, pawns and level
+     * Post condition: the puzzle is in the slot of its level, or dropped if
+     * its level was served already
+     */
+    private void put(long[] item) {
+        int level = (int) item[2];
+        synchronized (ready) {
+            if (level < nextServed) {
+                System.out.println("INFO: endless puzzle of level " + level
+                        + " came late, dropped");
+                return;
+            }
+            ready[level % capacity] = item;
+            ready.notifyAll();
+        }
+    }
+
+    private static boolean isReady(long[] item, int level) {
+        return item != null && item[2] == level;
+    }
+
+    /**
+     * Description: allow the caller to make a puzzle that is not a near
+     * repeat (see HammingIndex) of one this feed made before
+     * Pre condition: level must be 0 or more
+     * Post condition: return the puzzle, added to the puzzles made; after
+     * maxRepeatTries near repeats the last one is returned
+     * @param level specifies the level
+     * @return a long array, bishop, pawns and level; null if none was made
+     */
+    private long[] makeFresh(int level) {
+        for (int tries = 1; ; tries++) {
+            long[] item = make(level);
+            if (item == null) {
+                return null;
+            }
+            synchronized (made) {
+                if (tries == maxRepeatTries
+                        || !made.contains(item[1], HammingIndex.repeatDistance)) {
+                    made.add((int) item[0], item[1]);
+                    return item;
+                }
+            }
+            System.out.println("INFO: endless puzzle is a near repeat, making another");
+        }
+    }
+
+    /**
+     * Description: allow the caller to make the puzzle of a level
+     * Pre condition: level must be 0 or more
+     * Post condition: return the puzzle; if the rating can not be met in the
+     * generator's budget, a puzzle with any rating is made instead
+     * @param level specifies the level
+     * @return a long array, bishop, pawns and level; null if none was made
+     */
+    private static long[] make(int level) {
+        PuzzleGenerator generator = generators.get();
+        PuzzleSpec spec = getSpec(level);
+        long[] item = new long[3];
+        if (!generator.generate(spec, item)) {
+            spec.setMinRating(0);
+            if (!generator.generate(spec, item)) {
+                System.out.println("ERROR: no endless puzzle for " + spec);
+                return null;
+            }
+        }
+        item[2] = level;
+        return item;
+    }
+
+    /**
+     * Description: allow the caller to get the worker pool
+     * Pre condition: none
+     * Post condition: return the pool shared by all feeds, created on first
+     * use with one thread per spare core, up to 2
+     * @return a ThreadPoolExecutor
+     */
+    private static synchronized ThreadPoolExecutor getWorkers() {
+        if (workers == null) {
+            int threads = Math.max(1, Math.min(2,
+                    Runtime.getRuntime().availableProcessors() - 1));
+            workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private int count = 0;
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "puzzle-feed-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return workers;
+    }
+
+}
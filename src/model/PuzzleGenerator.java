@@ -0,0 +1,402 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleGenerator
+ * Description: The PuzzleGenerator allows the caller to create puzzles that
+ * have exactly one capture order. Like the create mode (ReleaseState), it
+ * walks the bishop backwards from the last capture: every move leaves a pawn
+ * on the square the bishop leaves. A move is only kept if the puzzle stays
+ * unique (SolutionCounter capped at 2), otherwise the walk backtracks.
+ *
+ * If a puzzle is unique, so is every puzzle left after a capture of its
+ * solution, so one walk gives a unique puzzle for every pawn count up to its
+ * length. Unique puzzles get rare quickly above 14 pawns, the walks are
+ * bounded by a node budget.
+ *
+ * A puzzle can also be made to a PuzzleSpec. The same walk is then read from
+ * the other end: the bishop starts on its square and every step captures a
+ * new pawn, so the puzzle is solvable by construction. The squares a step may
+ * use are cut down before the search (colour, forbidden squares and their
+ * mirror images), and a branch stops as soon as the required squares and the
+ * mirror images still missing are more than the pawns left to place. Short
+ * restarts keep one bad start from using the whole budget. A
+ * PuzzleGenerator is not thread safe, use one per thread.
+ */
+
+package model;
+
+import java.util.List;
+import java.util.Random;
+
+public class PuzzleGenerator {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int memoBits = 18; // 256K entries, 5 MB per generator
+    static final long defaultNodeBudget = 20_000; // moves tried per walk
+    static final long restartNodes = 1_000; // steps per spec attempt
+    static final long rateNodeLimit = 100_000; // counter budget per capture
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private Random random;
+    private SolutionCounter counter = new SolutionCounter(memoBits);
+    private long nodeBudget = defaultNodeBudget;
+    private long nodes = 0; // moves tried by the current walk
+
+    // the walk: bishop and pawns after each move, the longest walk found
+    private int[] bishops = new int[64];
+    private long[] pawns = new long[64];
+    private int[] bestBishops = new int[64];
+    private long[] bestPawns = new long[64];
+    private int bestLength = 0;
+    private int[][] candidates = new int[64][16]; // move list per depth
+    private int[] starts = new int[64]; // bishop squares of a spec, shuffled
+
+    // the spec being searched: squares a pawn may use, squares still owed
+    private PuzzleSpec spec = null;
+    private long allowed = 0L;
+    private long required = 0L;
+    private int startSquare = 0;
+    private long attemptNodes = 0;
+    private long foundPawns = 0L;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a PuzzleGenerator object
+     * Pre condition: none
+     * Post condition: PuzzleGenerator object is created with the seed
+     * @param seed specifies the seed of the random walks
+     */
+    public PuzzleGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
+    // -----------------------------------------------------------------------
+
+    public void setNodeBudget(long newNodeBudget) {
+        nodeBudget = newNodeBudget;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to generate unique puzzles
+     * Pre condition: minPawns <= maxPawns <= 63
+     * Post condition: one walk from a random square is made; a puzzle for
+     * every pawn count from minPawns to the length of the longest walk
+     * found is added to puzzles
+     * @param minPawns specifies the smallest puzzle to add
+     * @param maxPawns specifies the length the walk stops at
+     * @param puzzles specifies the list the puzzles are added to
+     * @return the number of pawns of the largest puzzle added, 0 if none
+     */
+    public int generate(int minPawns, int maxPawns, List<PuzzleWriter.Puzzle> puzzles) {
+        nodes = 0;
+        bestLength = 0;
+        bishops[0] = random.nextInt(64);
+        pawns[0] = 0L;
+        walk(0, maxPawns);
+
+        int largest = 0;
+        for (int n = Math.max(minPawns, 1); n <= bestLength; n++) {
+            puzzles.add(new PuzzleWriter.Puzzle(bestBishops[n], bestPawns[n]));
+            largest = n;
+        }
+        return largest;
+    }
+
+    /**
+     * Description: allow the caller to generate a puzzle to a spec
+     * Pre condition: spec must exist
+     * Post condition: puzzle[0] is set to the bishop square and puzzle[1] to
+     * the pawn bitmask; nothing is set if no puzzle was found
+     * @param newSpec specifies the puzzle wanted
+     * @param puzzle specifies the array the puzzle is returned in
+     * @return true if a puzzle was found within the node budget, false if
+     * the spec can not be met or the budget ran out
+     */
+    public boolean generate(PuzzleSpec newSpec, long[] puzzle) {
+        spec = newSpec;
+        nodes = 0;
+        int n = spec.getPawns();
+        int symmetry = spec.getSymmetry();
+
+        if (n < 1 || n > 31) {
+            return false;
+        }
+
+        // the colour: the bishop's, a required square's or a random one
+        long colour;
+        boolean isFree = false;
+        if (spec.getBishop() != PuzzleSpec.anyBishop) {
+            colour = Bitboard.sameColour(spec.getBishop());
+        } else if (spec.getRequired() != 0) {
+            colour = Bitboard.sameColour(Long.numberOfTrailingZeros(spec.getRequired()));
+        } else {
+            colour = random.nextBoolean() ? Bitboard.lightSquares : Bitboard.darkSquares;
+            isFree = true;
+        }
+
+        // without a square that is its own image, pawns come in pairs
+        if (symmetry != PuzzleSpec.noSymmetry && n % 2 != 0
+                && fixedSquares(symmetry, colour & ~spec.getForbidden()) == 0) {
+            if (!isFree) {
+                return false;
+            }
+            colour = ~colour;
+        }
+
+        long free = colour & ~spec.getForbidden();
+        free &= PuzzleSpec.mirror(symmetry, free);
+        long wanted = spec.getRequired() | PuzzleSpec.mirror(symmetry, spec.getRequired());
+        if ((wanted & ~free) != 0 || Long.bitCount(wanted) > n) {
+            return false;
+        }
+        if (symmetry != PuzzleSpec.noSymmetry && n % 2 != 0
+                && fixedSquares(symmetry, free) == 0) {
+            return false;
+        }
+
+        // the bishop square can not hold a pawn, nor can its image
+        int count = 0;
+        long rest = (spec.getBishop() != PuzzleSpec.anyBishop)
+                ? 1L << spec.getBishop() : colour;
+        while (rest != 0) {
+            int square = Long.numberOfTrailingZeros(rest);
+            rest &= rest - 1;
+            long image = 1L << PuzzleSpec.mirror(symmetry, square);
+            if ((wanted & ((1L << square) | image)) != 0) {
+                continue;
+            }
+            int i = count++;
+            int j = random.nextInt(count);
+            starts[i] = starts[j];
+            starts[j] = square;
+        }
+        if (count == 0) {
+            return false;
+        }
+
+        for (int i = 0; nodes < nodeBudget; i = (i + 1) % count) {
+            startSquare = starts[i];
+            long image = 1L << PuzzleSpec.mirror(symmetry, startSquare);
+            allowed = free & ~(1L << startSquare) & ~image;
+            required = wanted;
+
+            attemptNodes = 0;
+            if (extend(startSquare, 0L, n)) {
+                puzzle[0] = startSquare;
+                puzzle[1] = foundPawns;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Description: allow the caller to rate a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return the rating; a capture the counter gives up on
+     * is not counted
+     * @param bishop specifies the bishop square
+     * @param pawnMask specifies the pawn bitmask
+     * @return an integer, the number of losing captures the player can pick
+     * along the way to a solution, the higher the harder
+     */
+    public int rate(int bishop, long pawnMask) {
+        counter.setNodeLimit(rateNodeLimit);
+        int losing = 0;
+        long pawnsLeft = pawnMask;
+        while (pawnsLeft != 0) {
+            int next = -1;
+            for (long targets = Bitboard.diagonals[bishop] & pawnsLeft;
+                    targets != 0; targets &= targets - 1) {
+                int square = Long.numberOfTrailingZeros(targets);
+                long orders = counter.countUpTo(square, pawnsLeft & ~(1L << square), 1);
+                if (orders == 0) {
+                    losing++;
+                } else if (orders == 1 && next < 0) {
+                    next = square;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            bishop = next;
+            pawnsLeft &= ~(1L << next);
+        }
+        counter.setNodeLimit(Long.MAX_VALUE);
+        return losing;
+    }
+
+    /**
+     * Description: allow the caller to check if a puzzle is unique
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return a boolean value
+     * @param bishop specifies the bishop square
+     * @param pawnMask specifies the pawn bitmask
+     * @return true if the puzzle has exactly one capture order
+     */
+    public boolean isUnique(int bishop, long pawnMask) {
+        return counter.countUpTo(bishop, pawnMask, 2) == 1;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to extend the walk
+     * Pre condition: the puzzle after n moves is unique
+     * Post condition: the longest walk found is kept in bestBishops and
+     * bestPawns
+     * @param n specifies the number of moves made
+     * @param maxPawns specifies the length to stop at
+     * @return true if the walk reached maxPawns, false otherwise
+     */
+    private boolean walk(int n, int maxPawns) {
+        if (n > bestLength || bestLength == 0) {
+            bestLength = n;
+            System.arraycopy(bishops, 0, bestBishops, 0, n + 1);
+            System.arraycopy(pawns, 0, bestPawns, 0, n + 1);
+        }
+        if (n == maxPawns) {
+            return true;
+        }
+
+        // the squares the bishop can move to, in random order
+        int bishop = bishops[n];
+        long occupied = pawns[n] | (1L << bishop);
+        long targets = Bitboard.diagonals[bishop] & ~occupied;
+        int[] moves = candidates[n];
+        int count = 0;
+        while (targets != 0) {
+            int i = count++;
+            int j = random.nextInt(count);
+            moves[i] = moves[j];
+            moves[j] = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (++nodes > nodeBudget) {
+                return false;
+            }
+            int square = moves[i];
+            if (!isUnique(square, occupied)) {
+                continue;
+            }
+
+            bishops[n + 1] = square;
+            pawns[n + 1] = occupied;
+            if (walk(n + 1, maxPawns)) {
+                return true;
+            }
+            if (nodes > nodeBudget) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Description: allow the caller to get the squares that are their own
+     * mirror image, e.g. the a1-h8 diagonal for the main diagonal mirror
+     * Pre condition: none
+     * Post condition: return a mask, a subset of squares
+     * @param symmetry specifies the symmetry
+     * @param squares specifies the squares to look at
+     * @return a long, the mask of the fixed squares
+     */
+    private long fixedSquares(int symmetry, long squares) {
+        long fixed = 0L;
+        for (long rest = squares; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            if (PuzzleSpec.mirror(symmetry, square) == square) {
+                fixed |= 1L << square;
+            }
+        }
+        return fixed;
+    }
+
+    /**
+     * Description: allow the caller to add a capture to a spec puzzle
+     * Pre condition: generate(PuzzleSpec, long[]) set up the search
+     * Post condition: foundPawns is set if the spec is met
+     * @param square specifies the square the bishop is on
+     * @param visited specifies the pawns placed so far
+     * @param left specifies the pawns still to place
+     * @return true if a puzzle was found, false otherwise
+     */
+    private boolean extend(int square, long visited, int left) {
+        if (left == 0) {
+            if (PuzzleSpec.mirror(spec.getSymmetry(), visited) != visited
+                    || (required & ~visited) != 0) {
+                return false;
+            }
+            if (spec.getMinRating() > 0
+                    && rate(startSquare, visited) < spec.getMinRating()) {
+                return false;
+            }
+            foundPawns = visited;
+            return true;
+        }
+        if (++nodes > nodeBudget || ++attemptNodes > restartNodes) {
+            return false;
+        }
+
+        // the squares still owed; once they fill the pawns left, only they
+        // may be used
+        long owed = (required | PuzzleSpec.mirror(spec.getSymmetry(), visited)) & ~visited;
+        int owedCount = Long.bitCount(owed);
+        if (owedCount > left) {
+            return false;
+        }
+        long targets = Bitboard.diagonals[square] & allowed & ~visited;
+        if (owedCount == left) {
+            targets &= owed;
+        }
+
+        int depth = Long.bitCount(visited);
+        int[] moves = candidates[depth];
+        int count = 0;
+        while (targets != 0) {
+            int i = count++;
+            int j = random.nextInt(count);
+            moves[i] = moves[j];
+            moves[j] = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int next = moves[i];
+            if (extend(next, visited | (1L << next), left - 1)) {
+                return true;
+            }
+            if (nodes > nodeBudget || attemptNodes > restartNodes) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleId
+ * Description: The PuzzleId allows the caller to give every puzzle a number
+ * and get the puzzle back from it. Only the pawns on the bishop's colour can
+ * be captured, so a puzzle is the bishop square (64) and a set of the 31
+ * other squares of its colour. The ids are dense, 0 to 64 * 2^31 - 1:
+ * grouped by pawn count, then by bishop square, then the rank of the pawn
+ * set in the combinatorial number system. A puzzle fits in 8 bytes, and a
+ * random id of a pawn count is a uniformly random puzzle of that count.
+ */
+
+package model;
+
+import java.util.Random;
+
+public class PuzzleId {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int places = 31; // squares of a colour, less the bishop's
+
+    public static final long noId = -1;
+    public static final long maxId = 64L << places; // ids are below
+
+    // binomial[n][k] = n choose k, for n up to 31
+    static final long[][] binomial = new long[places + 1][places + 1];
+
+    // firstId[n] is the id of the first puzzle with n pawns
+    static final long[] firstId = new long[places + 2];
+
+    static {
+        for (int n = 0; n <= places; n++) {
+            binomial[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                binomial[n][k] = binomial[n - 1][k - 1] + binomial[n - 1][k];
+            }
+        }
+        for (int n = 0; n <= places; n++) {
+            firstId[n + 1] = firstId[n] + 64 * binomial[places][n];
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private PuzzleId() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the number of puzzles of a count
+     * Pre condition: pawns must be between 0 and 31
+     * Post condition: return 64 * (31 choose pawns)
+     * @param pawns specifies the number of pawns
+     * @return a long, the number of ids
+     */
+    public static long getCount(int pawns) {
+        return 64 * binomial[places][pawns];
+    }
+
+    /**
+     * Description: allow the caller to get the first id of a pawn count
+     * Pre condition: pawns must be between 0 and 31
+     * Post condition: return the id; the ids of the count follow it
+     * @param pawns specifies the number of pawns
+     * @return a long, the first id
+     */
+    public static long getFirstId(int pawns) {
+        return firstId[pawns];
+    }
+
+    /**
+     * Description: allow the caller to get the id of a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return the id
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return a long, the id; noId if a pawn is on the other colour or on
+     * the bishop
+     */
+    public static long rank(int bishop, long pawns) {
+        long colour = Bitboard.sameColour(bishop) & ~(1L << bishop);
+        if ((pawns & ~colour) != 0) {
+            return noId;
+        }
+
+        // the place of a pawn is the number of squares of the colour below
+        // it; the set is ranked by the sum of (place choose i), i = 1..n
+        long rank = 0;
+        int i = 0;
+        for (long rest = pawns; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            int place = Long.bitCount(colour & ((1L << square) - 1));
+            rank += binomial[place][++i];
+        }
+
+        int n = Long.bitCount(pawns);
+        return firstId[n] + bishop * binomial[places][n] + rank;
+    }
+
+    /**
+     * Description: allow the caller to get the puzzle of an id
+     * Pre condition: none
+     * Post condition: puzzle[0] is set to the bishop square and puzzle[1] to
+     * the pawn bitmask
+     * @param id specifies the id
+     * @param puzzle specifies the array the puzzle is returned in
+     * @return true if id is a valid id, false otherwise
+     */
+    public static boolean unrank(long id, long[] puzzle) {
+        if (id < 0 || id >= maxId) {
+            return false;
+        }
+
+        int n = 0;
+        while (id >= firstId[n + 1]) {
+            n++;
+        }
+        long offset = id - firstId[n];
+        int bishop = (int) (offset / binomial[places][n]);
+        long rank = offset % binomial[places][n];
+
+        // the squares of the colour, less the bishop's, by place
+        long colour = Bitboard.sameColour(bishop) & ~(1L << bishop);
+        int[] squares = new int[places];
+        int count = 0;
+        for (long rest = colour; rest != 0; rest &= rest - 1) {
+            squares[count++] = Long.numberOfTrailingZeros(rest);
+        }
+
+        // the largest place first: the greatest c with (c choose i) <= rank
+        long pawns = 0L;
+        int place = places - 1;
+        for (int i = n; i >= 1; i--) {
+            while (binomial[place][i] > rank) {
+                place--;
+            }
+            rank -= binomial[place][i];
+            pawns |= 1L << squares[place];
+            place--;
+        }
+
+        puzzle[0] = bishop;
+        puzzle[1] = pawns;
+        return true;
+    }
+
+    /**
+     * Description: allow the caller to get the id that stands for a puzzle
+     * and its mirror images, e.g. to count or store puzzles up to symmetry
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return the least id of the 8 images of the puzzle
+     * (see Bitboard.transform()); a puzzle and its images share it
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return a long, the canonical id; noId if a pawn is on the other colour
+     */
+    public static long canonical(int bishop, long pawns) {
+        long best = rank(bishop, pawns);
+        if (best == noId) {
+            return noId;
+        }
+        long bishopMask = 1L << bishop;
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            int image = Long.numberOfTrailingZeros(Bitboard.transform(symmetry, bishopMask));
+            best = Math.min(best, rank(image, Bitboard.transform(symmetry, pawns)));
+        }
+        return best;
+    }
+
+    /**
+     * Description: allow the caller to get the number of distinct images of
+     * a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return 8 for a puzzle with no symmetry of its own, 1,
+     * 2 or 4 otherwise
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return an integer, the number of puzzles that share the canonical id
+     */
+    public static int getImageCount(int bishop, long pawns) {
+        long bishopMask = 1L << bishop;
+        int same = 1; // the identity
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            if (Bitboard.transform(symmetry, bishopMask) == bishopMask
+                    && Bitboard.transform(symmetry, pawns) == pawns) {
+                same++;
+            }
+        }
+        return 8 / same;
+    }
+
+    /**
+     * Description: allow the caller to draw a puzzle uniformly at random
+     * Pre condition: pawns must be between 0 and 31
+     * Post condition: return a random id of a puzzle with the pawns
+     * @param pawns specifies the number of pawns
+     * @param random specifies the random number generator
+     * @return a long, the id
+     */
+    public static long random(int pawns, Random random) {
+        long count = getCount(pawns);
+        long offset = (random.nextLong() >>> 1) % count;
+        return firstId[pawns] + offset;
+    }
+
+    /**
+     * Description: allow the caller to get the text of an id, e.g. to share
+     * it; the ids sort as their text
+     * Pre condition: id must be valid
+     * Post condition: return 10 hex digits
+     * @param id specifies the id
+     * @return a string
+     */
+    public static String toString(long id) {
+        return String.format("%010x", id);
+    }
+
+    /**
+     * Description: allow the caller to read the text of an id
+     * Pre condition: text can not be null
+     * Post condition: return the id
+     * @param text specifies the hex digits
+     * @return a long, the id; noId if text is not an id
+     */
+    public static long parse(String text) {
+        try {
+            long id = Long.parseLong(text.trim(), 16);
+            return (id >= 0 && id < maxId) ? id : noId;
+        } catch (NumberFormatException e) {
+            return noId;
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleSet
+ * Description: The PuzzleSet allows the caller to write and read a sorted
+ * set of puzzle ids (see PuzzleId) as a compressed file. The ids are stored
+ * as the gaps between them, 7 bits per byte, in blocks of 4096 ids that are
+ * deflated one by one; dense sets of canonical ids take 1 to 2 bytes per
+ * puzzle. A table at the end gives the first id and the place of every
+ * block, so a reader can stream the whole set or go straight to any id by
+ * reading one block. A set does not have to fit in memory.
+ *
+ * file format (big endian):
+ *   int magic ("PSET"), int version, long count, int ids per block,
+ *   long table offset
+ *   the blocks: deflated, the gap to the previous id of the block (the
+ *   first id itself), unsigned varint, low 7 bits first
+ *   the table: long first id and long offset of every block
+ */
+
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class PuzzleSet {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int magic = 0x50534554; // "PSET"
+    static final int version = 2;
+    static final int headerSize = 28;
+    static final int blockIds = 4096; // ids per block
+    static final int bufferSize = 1 << 16;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private PuzzleSet() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Class
+    // -----------------------------------------------------------------------
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Writer
+     * Description: writes the ids of a set in ascending order
+     */
+    public static class Writer implements Closeable {
+        private final String file;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private long count = 0;
+        private long last = -1;
+        private long offset = headerSize; // where the next block starts
+
+        // the block being filled (a varint is 10 bytes at most), and the
+        // table: first id and offset of every block
+        private final byte[] block = new byte[blockIds * 10];
+        private final byte[] packed = new byte[bufferSize];
+        private int blockSize = 0;
+        private int blockCount = 0;
+        private long[] table = new long[256];
+
+        /**
+         * Description: allow the caller to create a set file
+         * Pre condition: the directory must exist
+         * Post condition: the file is created, or replaced, with no id
+         * @param newFile specifies the file
+         * @throws IOException if the file can not be written
+         */
+        public Writer(String newFile) throws IOException {
+            file = newFile;
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file), bufferSize));
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(0); // the count, written by close()
+            out.writeInt(blockIds);
+            out.writeLong(0); // the table offset, written by close()
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Description: allow the caller to add an id
+         * Pre condition: id must not be less than the last id added
+         * Post condition: the id is written, the same id twice is written
+         * once
+         * @param id specifies the id
+         * @throws IOException if the file can not be written
+         */
+        public void add(long id) throws IOException {
+            if (id == last) {
+                return;
+            }
+            if (id < last) {
+                throw new IOException("ids out of order in " + file);
+            }
+
+            if (count % blockIds == 0) {
+                // a new block, its first gap is the id itself
+                writeBlock();
+                if (2 * blockCount + 2 > table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                }
+                table[2 * blockCount] = id;
+                table[2 * blockCount + 1] = offset;
+                blockCount++;
+            }
+
+            long gap = (count % blockIds == 0) ? id : id - last - 1;
+            while ((gap & ~0x7fL) != 0) {
+                block[blockSize++] = (byte) ((gap & 0x7f) | 0x80);
+                gap >>>= 7;
+            }
+            block[blockSize++] = (byte) gap;
+            last = id;
+            count++;
+        }
+
+        /**
+         * Description: allow the caller to finish the file
+         * Pre condition: none
+         * Post condition: the last block and the table are written, then the
+         * header is completed
+         * @throws IOException if the file can not be written
+         */
+        public void close() throws IOException {
+            writeBlock();
+            long tableOffset = offset;
+            for (int i = 0; i < 2 * blockCount; i++) {
+                out.writeLong(table[i]);
+            }
+            out.close();
+            deflater.end();
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(8);
+                raf.writeLong(count);
+                raf.writeInt(blockIds);
+                raf.writeLong(tableOffset);
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (blockSize == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(block, 0, blockSize);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(packed);
+                out.write(packed, 0, n);
+                offset += n;
+            }
+            blockSize = 0;
+        }
+    }
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Reader
+     * Description: reads the ids of a set in ascending order, from the
+     * start or from any place
+     */
+    public static class Reader implements Closeable {
+        private final String file;
+        private final RandomAccessFile raf;
+        private final Inflater inflater = new Inflater();
+        private final long count;
+        private final int idsPerBlock;
+        private final long[] firstIds;
+        private final long[] offsets; // one more, the end of the last block
+
+        // the block being read
+        private byte[] packed = new byte[bufferSize];
+        private byte[] block;
+        private int blockIndex = -1;
+        private int blockSize = 0;
+        private int position = 0; // in block
+        private long index = 0; // of the next id in the set
+        private long last = -1;
+
+        /**
+         * Description: allow the caller to open a set file
+         * Pre condition: the file must exist
+         * Post condition: the header and the table are read, next() returns
+         * the first id
+         * @param newFile specifies the file
+         * @throws IOException if the file is not a set file
+         */
+        public Reader(String newFile) throws IOException {
+            file = newFile;
+            raf = new RandomAccessFile(file, "r");
+            try {
+                if (raf.readInt() != magic || raf.readInt() != version) {
+                    throw new IOException("not a puzzle set: " + file);
+                }
+                count = raf.readLong();
+                idsPerBlock = raf.readInt();
+                long tableOffset = raf.readLong();
+
+                int blocks = (int) ((count + idsPerBlock - 1) / idsPerBlock);
+                firstIds = new long[blocks];
+                offsets = new long[blocks + 1];
+                raf.seek(tableOffset);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Channels.newInputStream(raf.getChannel()), bufferSize));
+                for (int i = 0; i < blocks; i++) {
+                    firstIds[i] = in.readLong();
+                    offsets[i] = in.readLong();
+                }
+                offsets[blocks] = tableOffset;
+                block = new byte[idsPerBlock * 10];
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Description: allow the caller to read the next id
+         * Pre condition: none
+         * Post condition: return the next id in ascending order
+         * @return a long, the id; PuzzleId.noId after the last id
+         * @throws IOException if the file is damaged
+         */
+        public long next() throws IOException {
+            if (index >= count) {
+                return PuzzleId.noId;
+            }
+            if (blockIndex != index / idsPerBlock) {
+                readBlock((int) (index / idsPerBlock));
+            }
+
+            long gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (position == blockSize) {
+                    throw new EOFException("puzzle set block cut short in " + file);
+                }
+                int b = block[position++];
+                gap |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            last = (index % idsPerBlock == 0) ? gap : last + gap + 1;
+            index++;
+            return last;
+        }
+
+        /**
+         * Description: allow the caller to go to any place in the set
+         * Pre condition: newIndex must be between 0 and the count
+         * Post condition: next() returns the id at newIndex; at most one
+         * block is read
+         * @param newIndex specifies the place of the id, 0 is the first
+         * @throws IOException if the file is damaged
+         */
+        public void seek(long newIndex) throws IOException {
+            long first = newIndex - newIndex % idsPerBlock;
+            if (newIndex < index || first > index) {
+                // start over at the first id of the block
+                index = first;
+                blockIndex = -1;
+            }
+            while (index < newIndex) {
+                next();
+            }
+        }
+
+        /**
+         * Description: allow the caller to find the place of an id
+         * Pre condition: none
+         * Post condition: return the number of ids of the set less than id;
+         * at most one block is read
+         * @param id specifies the id
+         * @return a long, the place of the first id not less than id
+         * @throws IOException if the file is damaged
+         */
+        public long lowerBound(long id) throws IOException {
+            // the first block whose first id is not less than id
+            int lo = 0;
+            int hi = firstIds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (firstIds[mid] < id) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (lo == 0) {
+                return 0;
+            }
+
+            // the id is in the block before, or just after it
+            long place = (long) (lo - 1) * idsPerBlock;
+            seek(place);
+            long end = Math.min(place + idsPerBlock, count);
+            while (place < end && next() < id) {
+                place++;
+            }
+            return place;
+        }
+
+        public void close() throws IOException {
+            raf.close();
+            inflater.end();
+        }
+
+        private void readBlock(int newBlockIndex) throws IOException {
+            int size = (int) (offsets[newBlockIndex + 1] - offsets[newBlockIndex]);
+            if (size > packed.length) {
+                packed = new byte[size];
+            }
+            raf.seek(offsets[newBlockIndex]);
+            raf.readFully(packed, 0, size);
+
+            inflater.reset();
+            inflater.setInput(packed, 0, size);
+            try {
+                blockSize = inflater.inflate(block);
+            } catch (DataFormatException e) {
+                throw new IOException("damaged puzzle set " + file, e);
+            }
+            blockIndex = newBlockIndex;
+            position = 0;
+        }
+    }
+
+}
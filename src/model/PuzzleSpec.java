@@ -0,0 +1,185 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleSpec
+ * Description: The PuzzleSpec allows the caller to describe the puzzle they
+ * want from the PuzzleGenerator: the number of pawns, the bishop square,
+ * squares that must or must not hold a pawn, the least rating and a mirror
+ * symmetry of the pawns. Only the symmetries that keep the square colour
+ * are offered, the others would put pawns out of the bishop's reach.
+ */
+
+package model;
+
+public class PuzzleSpec {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    public static final int anyBishop = -1;
+
+    // symmetries of the pawns, see mirror()
+    public static final int noSymmetry = 0;
+    public static final int rotation = 1; // half turn about the centre
+    public static final int mainDiagonal = 2; // mirror on a1-h8, x <-> y
+    public static final int antiDiagonal = 3; // mirror on h1-a8
+
+    static final String[] symmetryNames = { "none", "rotation",
+            "main diagonal", "anti diagonal" };
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private int pawns;
+    private int bishop = anyBishop;
+    private long required = 0L;
+    private long forbidden = 0L;
+    private int minRating = 0;
+    private int symmetry = noSymmetry;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a PuzzleSpec object
+     * Pre condition: newPawns must be between 1 and 31
+     * Post condition: PuzzleSpec object is created with no other constraint
+     * @param newPawns specifies the number of pawns
+     */
+    public PuzzleSpec(int newPawns) {
+        pawns = newPawns;
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public int getPawns() {
+        return pawns;
+    }
+
+    public int getBishop() {
+        return bishop;
+    }
+
+    public long getRequired() {
+        return required;
+    }
+
+    public long getForbidden() {
+        return forbidden;
+    }
+
+    public int getMinRating() {
+        return minRating;
+    }
+
+    public int getSymmetry() {
+        return symmetry;
+    }
+
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
+    // -----------------------------------------------------------------------
+
+    public void setBishop(Position newBishop) {
+        bishop = (newBishop == null) ? anyBishop : newBishop.getIndex();
+    }
+
+    public void require(Position pos) {
+        required |= 1L << pos.getIndex();
+    }
+
+    public void forbid(Position pos) {
+        forbidden |= 1L << pos.getIndex();
+    }
+
+    public void setMinRating(int newMinRating) {
+        minRating = newMinRating;
+    }
+
+    public void setSymmetry(int newSymmetry) {
+        symmetry = newSymmetry;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to check a puzzle against the spec
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return a boolean value; the rating is not checked
+     * @param newBishop specifies the bishop square
+     * @param pawnMask specifies the pawn bitmask
+     * @return true if the puzzle has the pawns, bishop, squares and symmetry
+     * of the spec, false otherwise
+     */
+    public boolean matches(int newBishop, long pawnMask) {
+        return Long.bitCount(pawnMask) == pawns
+                && (bishop == anyBishop || bishop == newBishop)
+                && (pawnMask & required) == required
+                && (pawnMask & forbidden) == 0
+                && mirror(symmetry, pawnMask) == pawnMask;
+    }
+
+    public String toString() {
+        return String.format("%d pawns, bishop %s, %d required, %d forbidden, rating %d+, symmetry %s",
+                pawns, bishop == anyBishop ? "any" : Position.of(bishop).toString(),
+                Long.bitCount(required), Long.bitCount(forbidden), minRating,
+                symmetryNames[symmetry]);
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Static Methods
+    // -----------------------------------------------------------------------
+
+    public static String getSymmetryName(int symmetry) {
+        return symmetryNames[symmetry];
+    }
+
+    /**
+     * Description: allow the caller to get the mirror image of a square
+     * Pre condition: square must be between 0 and 63
+     * Post condition: return the square, on the same colour
+     * @param symmetry specifies the symmetry
+     * @param square specifies the square
+     * @return an integer, the mirrored square
+     */
+    public static int mirror(int symmetry, int square) {
+        int x = square % 8;
+        int y = square / 8;
+        switch (symmetry) {
+            case rotation:
+                return (7 - y) * 8 + (7 - x);
+            case mainDiagonal:
+                return x * 8 + y;
+            case antiDiagonal:
+                return (7 - x) * 8 + (7 - y);
+            default:
+                return square;
+        }
+    }
+
+    /**
+     * Description: allow the caller to get the mirror image of a mask
+     * Pre condition: none
+     * Post condition: return the mask of the mirrored squares
+     * @param symmetry specifies the symmetry
+     * @param mask specifies the squares
+     * @return a long, the mirrored mask
+     */
+    public static long mirror(int symmetry, long mask) {
+        if (symmetry == noSymmetry) {
+            return mask;
+        }
+        long mirrored = 0L;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            mirrored |= 1L << mirror(symmetry, Long.numberOfTrailingZeros(rest));
+        }
+        return mirrored;
+    }
+
+}
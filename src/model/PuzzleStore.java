@@ -0,0 +1,154 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleStore
+ * Description: The PuzzleStore allows the caller to draw puzzles from the
+ * store, a sorted set of canonical puzzle ids (see PuzzleSet) written by the
+ * SortPuzzles tool to ./dataset/store.set. The ids of a pawn count follow
+ * one another (see PuzzleId), so the store finds where each count starts
+ * once and then reads one block per puzzle drawn, however large it is. A
+ * canonical puzzle stands for its 8 mirror images, so one of them is picked
+ * at random.
+ */
+
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class PuzzleStore {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final String storeFile = "./dataset/store.set";
+
+    private static PuzzleStore instance = null;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private PuzzleSet.Reader reader = null; // null if there is no store
+    private boolean isOpened = false;
+
+    // firstPlace[n] is the place in the store of the first puzzle with n
+    // pawns, firstPlace[n + 1] the place after the last
+    private final long[] firstPlace = new long[PuzzleId.places + 2];
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    private PuzzleStore() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the store
+     * Pre condition: none
+     * Post condition: return the process-wide store, the file is opened on
+     * first use
+     * @return the PuzzleStore
+     */
+    public static synchronized PuzzleStore getInstance() {
+        if (instance == null) {
+            instance = new PuzzleStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Description: allow the caller to get the number of puzzles of a count
+     * Pre condition: none
+     * Post condition: return the canonical puzzles with the pawns in the
+     * store
+     * @param pawns specifies the number of pawns
+     * @return a long, 0 if there is no store or pawns is out of range
+     */
+    public synchronized long getCount(int pawns) {
+        open();
+        if (reader == null || pawns < 0 || pawns > PuzzleId.places) {
+            return 0;
+        }
+        return firstPlace[pawns + 1] - firstPlace[pawns];
+    }
+
+    /**
+     * Description: allow the caller to draw a puzzle from the store
+     * Pre condition: puzzle must hold 2 longs
+     * Post condition: puzzle[0] is set to the bishop square and puzzle[1] to
+     * the pawn bitmask of a random puzzle with the pawns, in a random one of
+     * its images
+     * @param pawns specifies the number of pawns
+     * @param random specifies the random number generator
+     * @param puzzle specifies the array the puzzle is returned in
+     * @return true if a puzzle was drawn, false if the store has none
+     */
+    public synchronized boolean getPuzzle(int pawns, Random random, long[] puzzle) {
+        long count = getCount(pawns);
+        if (count == 0) {
+            return false;
+        }
+        try {
+            reader.seek(firstPlace[pawns] + (random.nextLong() >>> 1) % count);
+            if (!PuzzleId.unrank(reader.next(), puzzle)) {
+                return false;
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR: reading " + storeFile);
+            return false;
+        }
+
+        int symmetry = random.nextInt(8);
+        puzzle[0] = Long.numberOfTrailingZeros(
+                Bitboard.transform(symmetry, 1L << puzzle[0]));
+        puzzle[1] = Bitboard.transform(symmetry, puzzle[1]);
+        return true;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to open the store once
+     * Pre condition: none
+     * Post condition: the reader is open and firstPlace is set, or reader
+     * is null if the file is missing or damaged
+     */
+    private void open() {
+        if (isOpened) {
+            return;
+        }
+        isOpened = true;
+        if (!new File(storeFile).isFile()) {
+            System.out.println("INFO: no puzzle store " + storeFile);
+            return;
+        }
+        try {
+            reader = new PuzzleSet.Reader(storeFile);
+            for (int n = 0; n < firstPlace.length; n++) {
+                firstPlace[n] = reader.lowerBound(PuzzleId.getFirstId(n));
+            }
+            System.out.println("INFO: puzzle store " + storeFile + ", "
+                    + reader.getCount() + " puzzles");
+        } catch (IOException e) {
+            System.out.println("ERROR: reading " + storeFile);
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException closing) {
+                    // the store is not used either way
+                }
+            }
+            reader = null;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: PuzzleWriter
+ * Description: The PuzzleWriter allows the caller to queue puzzle saves. A
+ * background thread writes them in batches: the index file is read and
+ * written once per batch, and a save that is covered by a later save of the
+ * same (evolving) board is dropped. Generated puzzles can be queued as well.
+ */
+
+package model;
+
+import controller.IOExecutor;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class PuzzleWriter {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final long lingerMillis = 250; // wait for more saves to coalesce
+    static final String fileSpecifier = "./dataset/puzzle/%02d-%04d.txt";
+
+    private static PuzzleWriter instance = null;
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    // checks the unique only saves, created by the first one and used by
+    // the writer thread only
+    private SolutionCounter counter = null;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the class to create the PuzzleWriter object
+     * Pre condition: none
+     * Post condition: the writer thread is started
+     */
+    private PuzzleWriter() {
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "puzzle-writer");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the writer
+     * Pre condition: none
+     * Post condition: return the process-wide writer, created on first use
+     * @return the PuzzleWriter
+     */
+    public static synchronized PuzzleWriter getInstance() {
+        if (instance == null) {
+            instance = new PuzzleWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Description: allow the caller to queue a save
+     * Pre condition: state must be a fork that nobody else mutates
+     * Post condition: the state's suffix puzzles will be written by the
+     * writer thread, then done runs on the Event Dispatch Thread
+     * @param state specifies the state to save
+     * @param done specifies the callback, can be null
+     */
+    public void submit(ReleaseState state, Runnable done) {
+        queue.add(new Request(state, null, done));
+    }
+
+    /**
+     * Description: allow the caller to queue puzzles that are already made,
+     * e.g. by the PuzzleGenerator
+     * Pre condition: nobody else mutates the list
+     * Post condition: the puzzles will be written by the writer thread, then
+     * done runs on the Event Dispatch Thread
+     * @param puzzles specifies the puzzles to save
+     * @param done specifies the callback, can be null
+     */
+    public void submit(List<Puzzle> puzzles, Runnable done) {
+        queue.add(new Request(null, puzzles, done));
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the writer thread to process the queue
+     * Pre condition: must only run on the writer thread
+     * Post condition: loops forever, writing one batch per wake up
+     */
+    private void writeLoop() {
+        while (true) {
+            List<Request> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                Thread.sleep(lingerMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            try {
+                writeBatch(coalesce(batch));
+            } catch (RuntimeException e) {
+                System.out.println("ERROR: saving puzzles failed: " + e);
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).done != null) {
+                    IOExecutor.runOnEDT(batch.get(i).done);
+                }
+            }
+        }
+    }
+
+    /**
+     * Description: allow the caller to drop the saves that are covered
+     * Pre condition: batch is in submit order
+     * Post condition: return the saves whose puzzles are not all part of a
+     * later save in the batch
+     * @param batch specifies the queued saves
+     * @return a list of the saves to write
+     */
+    private List<Request> coalesce(List<Request> batch) {
+        List<Request> requests = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            ReleaseState state = batch.get(i).state;
+            boolean isCovered = false;
+            for (int j = i + 1; j < batch.size() && !isCovered && state != null; j++) {
+                ReleaseState later = batch.get(j).state;
+                isCovered = (later != null) && later.includes(state);
+            }
+
+            if (isCovered) {
+                System.out.println("INFO: save coalesced with a later save");
+            } else {
+                requests.add(batch.get(i));
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Concept: Writing to files.
+     * Description: allow the caller to write a batch as one transaction
+     * Pre condition: must only run on the writer thread
+     * Post condition: every suffix puzzle is written with a single write, the
+     * index is read once before and written once after all puzzle files
+     * @param requests specifies the saves to write
+     */
+    private void writeBatch(List<Request> requests) {
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            if (request.state == null) {
+                puzzles.addAll(request.puzzles);
+                continue;
+            }
+            // the counter's memo is large, a plain save does not need it
+            if (counter == null && request.state.isUniqueOnly()) {
+                counter = new SolutionCounter();
+            }
+            request.state.savePuzzles_recursion(puzzles, counter);
+        }
+        if (puzzles.isEmpty()) {
+            return;
+        }
+
+        // the lock keeps loads from reading a half written index
+        synchronized (State.datasetLock) {
+            State index = new State(null);
+            index.readIndexFile();
+
+            for (int i = 0; i < puzzles.size(); i++) {
+                Puzzle puzzle = puzzles.get(i);
+
+                int nextFileNumber = 1;
+                if (index.dict.containsKey(puzzle.numberOfPawns)) {
+                    nextFileNumber = index.dict.get(puzzle.numberOfPawns) + 1;
+                }
+
+                String file = String.format(fileSpecifier,
+                        puzzle.numberOfPawns, nextFileNumber);
+                try {
+                    Files.write(Paths.get(file),
+                            puzzle.text.getBytes(StandardCharsets.UTF_8));
+                    System.out.println(">>> WRITING TO FILE " + file);
+                } catch (IOException e) {
+                    System.out.println("An error occured while writing " + file);
+                    continue;
+                }
+                index.dict.put(puzzle.numberOfPawns, nextFileNumber);
+            }
+
+            index.writeIndexFile();
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Class
+    // -----------------------------------------------------------------------
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Puzzle
+     * Description: a puzzle file waiting to be written
+     */
+    public static class Puzzle {
+        int numberOfPawns;
+        String text; // the content of the puzzle file
+
+        Puzzle(int numberOfPawns, String text) {
+            this.numberOfPawns = numberOfPawns;
+            this.text = text;
+        }
+
+        /**
+         * Description: allow the caller to create a Puzzle from a position
+         * Pre condition: bishop is not one of the pawns
+         * Post condition: the text is in the puzzle file format, the pawns
+         * in square order
+         * @param bishop specifies the bishop square
+         * @param pawns specifies the pawn bitmask
+         */
+        public Puzzle(int bishop, long pawns) {
+            StringBuilder sb = new StringBuilder();
+            String eol = System.lineSeparator();
+
+            sb.append("#--*-- Bishop Position --*--").append(eol);
+            sb.append(Position.of(bishop).toString()).append(eol);
+            sb.append("#--*-- Pawn Position --*--").append(eol);
+            for (long rest = pawns; rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
+                sb.append(Position.of(square).toString()).append(eol);
+            }
+
+            this.numberOfPawns = Long.bitCount(pawns);
+            this.text = sb.toString();
+        }
+
+        public int getNumberOfPawns() {
+            return numberOfPawns;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Request
+     * Description: a queued save and its callback
+     */
+    private static class Request {
+        ReleaseState state; // null for puzzles that are already made
+        List<Puzzle> puzzles;
+        Runnable done;
+
+        Request(ReleaseState state, List<Puzzle> puzzles, Runnable done) {
+            this.state = state;
+            this.puzzles = puzzles;
+            this.done = done;
+        }
+    }
+
+}
@@ -8,14 +8,7 @@
 package model;
 
 import controller.Manager;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.List;
 
 public class ReleaseState extends State {
 
@@ -24,6 +17,7 @@ public class ReleaseState extends State {
     // -----------------------------------------------------------------------
 
     private boolean isBoardSaved = false; // if board has been saved, true
+    private boolean isUniqueOnly = false; // save the unique puzzles only
     
     // -----------------------------------------------------------------------
     // Constructor
@@ -54,9 +48,6 @@ public class ReleaseState extends State {
         
         // call base class
         super.initializeGame();
-        
-        pawnPosition = new ArrayList<>();
-        path = new ArrayList<>();
     }
 
     /**
@@ -70,16 +61,17 @@ public class ReleaseState extends State {
     public boolean isValidMove(Position newPos) {
         
         // If no bishop position set, move is valid
-        if (bishopPosition == null) {
+        if (!board.hasBishop()) {
             return true;
         }
             
         // Skip if tile is occupied
-        if (occupiedPosition[newPos.getY()][newPos.getX()] != '.')
+        int square = newPos.getIndex();
+        if (board.isPawn(square) || square == board.getBishop())
             return false;
         
         // Skip if new position is not a diagonal move
-        if (!newPos.isDiagonal(bishopPosition))
+        if (!newPos.isDiagonal(getBishopPosition()))
             return false;
         
         return true;
@@ -88,116 +80,156 @@ public class ReleaseState extends State {
     /**
      * Description: allow the caller to move position
      * Pre condition: object and Position must exist
-     * Post condition: move the bishop position and increment the number of 
-     * pawns
+     * Post condition: place the bishop, or move it and leave a pawn on the 
+     * square it left
      * @param newPos specifies the position to move
      */     
     @Override
     public void movePosition(Position newPos) {
-        if (bishopPosition != null) {
-            numberOfPawns++;
+        if (board.hasBishop()) {
+            board.release(newPos.getIndex());
+        } else {
+            board.reset(newPos.getIndex(), 0L);
         }
-        setBishopPosition(newPos);
+        
+        // moving the bishop will unsave the board
+        isBoardSaved = false;
     }
  
     /**
      * Description: allow the caller to undo a move
-     * Pre condition: object and Position must exist, lastIndex can not be less
-     * than 0, bishopPosition can not be null.
-     * Post condition: undo the previous move (see code for more details)
+     * Pre condition: object must exist
+     * Post condition: undo the previous move; with no previous move the 
+     * bishop is removed
      */     
     @Override
     public void undo() {  
-        // the previous move
-        int lastIndex = path.size() - 1;
-        
         // no previous move
-        if (lastIndex < 0) {
-            if (bishopPosition != null) {
-               occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = '.';
-            }
-            bishopPosition = null;
+        if (board.getMoveCount() == 0) {
+            board.clear();
             return;
         }
         
-        Position lastPos;
-        lastPos = path.remove(lastIndex);
+        // set the bishop back, the pawn it left is gone
+        board.undo();
         addUndos();
-        pawnPosition.remove(lastIndex);
+        isBoardSaved = false;
+    }
+    
+    /**
+     * Description: allow the caller to redo the last undone move
+     * Pre condition: object must exist
+     * Post condition: the bishop moves again and leaves a pawn behind
+     */    
+    @Override
+    public void redo() {
+        if (!board.canRedo()) {
+            return;
+        }
         
-        // set the bishopPosition and pawns back to the last position
-        if (bishopPosition != null) {
-            occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = '.';
-            bishopPosition = lastPos;
-            occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = 'Q';
-            numberOfPawns--;  
-            
-            isBoardSaved = false;
-        } else {
-
+        board.redo();
+        addMoves();
+        isBoardSaved = false;
+    }
+    
+    /**
+     * Description: allow the caller to go back or forward to any move
+     * Pre condition: object must exist
+     * Post condition: see State.jumpTo(), the board is no longer saved
+     * @param ply specifies the number of moves made
+     * @return true if the board changed, false otherwise
+     */    
+    @Override
+    public boolean jumpTo(int ply) {
+        if (!super.jumpTo(ply)) {
+            return false;
         }
+        isBoardSaved = false;
+        return true;
     }
      
     /**
      * Description: allow the caller to save the game to a file
      * Pre condition: object must exist, board should not be previously saved
-     * Post condition: save puzzle to the file system
+     * Post condition: the state is forked and the puzzles are saved to the 
+     * file system in the background
      */    
     @Override
     public void saveGame() {
-        // return immediately (short circuit) when there is no pawns.
-        if (numberOfPawns == 0) {
-            System.out.println("INFO: Nothing to save");
-            return;
-        }
-        
-        if (isBoardSaved) {
-            System.out.println("INFO: Board already saved");
-            return;            
-        }
-
-        // clone the state and save recursively 
-        ReleaseState newState = myclone(); 
-
-        newState.saveGame_recursion();
+        save(false);
     }
     
     // -----------------------------------------------------------------------
-    // Private Methods
+    // Public Methods
     // -----------------------------------------------------------------------
     
     /**
-     * Description: allow the caller to set the bishop position
-     * Pre condition: object must exist, occupiedPosition and path must be 
-     * initialized, bishopPosition can not be null
-     * Post condition: replace old bishop position with 'P', new position with 
-     * 'Q'
-     * @param newPos specifies the bishop's new position
-     */        
-    private void setBishopPosition(Position newPos) {
-        if (bishopPosition != null) {
-            occupiedPosition[bishopPosition.getY()][bishopPosition.getX()] = 'P';        
-            pawnPosition.add(bishopPosition);
-            path.add(bishopPosition);
+     * Description: allow the caller to save the puzzles with one solution
+     * Pre condition: object must exist, board should not be previously saved
+     * Post condition: like saveGame(), but a suffix puzzle is only written 
+     * if it has exactly one capture order
+     */    
+    public void saveUniqueGame() {
+        save(true);
+    }
+    
+    // -----------------------------------------------------------------------
+    // Package Methods
+    // -----------------------------------------------------------------------
+    
+    /**
+     * Description: allow the caller to check if the puzzles of another state 
+     * are all puzzles of this state
+     * Pre condition: both states must exist
+     * Post condition: return a boolean value
+     * @param other specifies the other state
+     * @return true if this state continues the path of other, so saving this 
+     * state also saves every puzzle of other; false otherwise
+     */    
+    boolean includes(ReleaseState other) {
+        // a unique only save skips puzzles a full save writes
+        if (isUniqueOnly && !other.isUniqueOnly) {
+            return false;
         }
-        bishopPosition = newPos;
-        occupiedPosition[newPos.getY()][newPos.getX()] = 'Q';
         
-        // moving the bishop will unsave the board
-        isBoardSaved = false;
-    }  
+        int n = other.board.getMoveCount();
+        if (!other.board.hasBishop() || !board.hasBishop() 
+                || board.getMoveCount() < n) {
+            return false;
+        }
+        
+        for (int i = 0; i < n; i++) {
+            if (board.getMove(i) != other.board.getMove(i)) {
+                return false;
+            }
+        }
+        
+        // where this state's bishop was after the same number of moves
+        int bishop = (n == board.getMoveCount()) ? board.getBishop() 
+                : MoveStack.from(board.getMove(n));
+        return bishop == other.board.getBishop();
+    }
+
+    boolean isUniqueOnly() {
+        return isUniqueOnly;
+    }
        
     /**
-     * Description: allow the caller to save the game using recursion
-     * Pre condition: object and dict must exist, numberOfPawns should be 
-     * greater than 0, board should not be saved
-     * Post condition: save puzzle at the current state and call recursively 
-     * for the reduction by number of pawns
+     * Description: allow the caller to collect the puzzles using recursion
+     * Pre condition: object must be a fork, the number of pawns should be greater 
+     * than 0, board should not be saved
+     * Post condition: add the puzzle at the current state and call 
+     * recursively for the reduction by number of pawns; a unique only state 
+     * skips the puzzles with more than one capture order
+     * @param batch specifies the list the puzzles are added to
+     * @param counter specifies the counter used by a unique only state, can
+     * be null for the others
      */    
-    private void saveGame_recursion() {
+    void savePuzzles_recursion(List<PuzzleWriter.Puzzle> batch, 
+            SolutionCounter counter) {
         
         // return immediately (short circuit) when there is no pawns.
-        if (numberOfPawns == 0) {
+        if (board.getNumberOfPawns() == 0) {
             System.out.println("INFO: Nothing to save");
             return;
         }
@@ -207,138 +239,106 @@ public class ReleaseState extends State {
             return;            
         }
 
-        if (numberOfPawns <= 3) {
+        if (board.getNumberOfPawns() <= 3) {
             System.out.println("INFO: Board too simple ... not worth to play.");
             return;
         }
 
-        // use the dict (index file) to get the next file number for the given 
-        // pawn
-        readIndexFile();
-        int nextFileNumber = getNextNumber(numberOfPawns);
-        
-        // save the puzzle to the file
-        saveFile(nextFileNumber);
-        
-        // update the dict and save the index file
-        putNextNumber(numberOfPawns, nextFileNumber);
-        writeIndexFile();
+        // a shorter puzzle of the path can be unique, so keep going
+        if (isUniqueOnly && counter.countUpTo(board.getBishop(), 
+                board.getPawns(), 2) != 1) {
+            System.out.println("INFO: Board has more than one solution ... skipped.");
+        } else {
+            batch.add(new PuzzleWriter.Puzzle(board.getNumberOfPawns(), 
+                    toPuzzleString()));
+        }
         isBoardSaved = true;
 
-        // debug
-        //System.out.println("# of Pawns:" + numberOfPawns);
-
-        // undo the move and save the puzzlie recursively.
-        // the resusive state is the numberOfPawns.
+        // undo the move and save the puzzle recursively.
+        // the recursive state is the number of pawns.
         undo();
-        saveGame_recursion();
-        
+        savePuzzles_recursion(batch, counter);
     }
-
+    
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+    
     /**
-     * Description: allow the caller to get the next number 
-     * Pre condition: the dict must exist and can not be null
-     * Post condition: return the next number
-     * @param pawnNumber specifies the key to the dictionary 
-     * @return an integer, the next number, return 1 if pawnNumber does not 
-     * exist in the dict
+     * Description: allow the caller to save the game to a file
+     * Pre condition: object must exist, board should not be previously saved
+     * Post condition: the state is forked and the puzzles are saved to the 
+     * file system in the background
+     * @param uniqueOnly specifies if only unique puzzles are saved
      */    
-    private int getNextNumber(int pawnNumber){
-        if (dict == null) {
-            return 0;
+    private void save(boolean uniqueOnly) {
+        // return immediately (short circuit) when there is no pawns.
+        if (board.getNumberOfPawns() == 0) {
+            System.out.println("INFO: Nothing to save");
+            return;
         }
         
-        // if the key exists in the dict, increment by 1
-        // otherwise return 1
-        if (dict.containsKey(pawnNumber)) {
-            return dict.get(pawnNumber) + 1;
+        if (isBoardSaved) {
+            System.out.println("INFO: Board already saved");
+            return;            
         }
-        return 1;
-    }
 
-    /**
-     * Description: allow the caller to put the next number
-     * Pre condition: the dict must exist
-     * Post condition: add (key,value) to the dict
-     * @param pawnNumber specifies the key
-     * @param fileNumber specifies the value
-     */
-    private void putNextNumber(int pawnNumber, int fileNumber){
-        dict.put(pawnNumber, fileNumber);
+        // fork the state and queue it; the fork is taken now so the 
+        // player can keep moving while the writer saves it recursively
+        ReleaseState newState = fork(); 
+        newState.isUniqueOnly = uniqueOnly;
+        isBoardSaved = true;
+        
+        Runnable done = null;
+        if (myManager != null) {
+            final Manager manager = myManager;
+            manager.beginTask();
+            done = new Runnable() {
+                public void run() {
+                    manager.endTask();
+                }
+            };
+        }
+        PuzzleWriter.getInstance().submit(newState, done);
     }
-   
+    
     /**
-     * Concept: Writing to files.
-     * Description:  allow the caller to save the file
-     * Pre condition: object must exist
-     * Post condition: save the puzzle to the file system
-     * @param nextFileNumber specifies the next file number
+     * Description:  allow the caller to get the puzzle file content
+     * Pre condition: object must exist, the board must have a bishop
+     * Post condition: return the puzzle in the puzzle file format
+     * @return a string, the content of the puzzle file
      */    
-    private void saveFile(int nextFileNumber) {
-        FileWriter fw = null;
+    private String toPuzzleString() {
+        StringBuilder sb = new StringBuilder();
+        String eol = System.lineSeparator();
         
-        try {
-            String fileSpecifier = "./dataset/puzzle/%02d-%04d.txt";
-            String file = String.format(fileSpecifier, numberOfPawns, nextFileNumber);
-            
-            fw = new FileWriter(file);
-
-            System.out.println(">>> WRITING TO FILE " + file);
-        }
-        catch (IOException e) {
-            System.out.println("An error occured while opening the file.");
-        }
-        
-        PrintWriter pw = new PrintWriter(fw);
-        String s1 = "";
-        
-        s1 = "#--*-- Bishop Position --*--";
-        pw.println(s1);        
+        sb.append("#--*-- Bishop Position --*--").append(eol);        
+        sb.append(getBishopPosition().toString()).append(eol);
+        sb.append("#--*-- Pawn Position --*--").append(eol);              
         
-        s1 = bishopPosition.toString();
-        pw.println(s1);
-        
-        s1 = "#--*-- Pawn Position --*--";
-        pw.println(s1);              
-        
-        for (int i = pawnPosition.size() - 1; i >= 0; i--) {
-            s1 = pawnPosition.get(i).toString();
-            pw.println(s1);
+        for (int i = board.getMoveCount() - 1; i >= 0; i--) {
+            Position pawn = Position.of(MoveStack.from(board.getMove(i)));
+            sb.append(pawn.toString()).append(eol);
         }
-       
-        pw.close();        
-        
+        return sb.toString();
     }
     
     /**
-     * Description:  allow the caller to create a clone of a State
+     * Description:  allow the caller to fork the State
      * Pre condition: objects must exist
-     * Post condition: create a replicate of the State (simplified version),
-     * which is used by saveGame_recursion()
+     * Post condition: create a State on a fork of the board, in constant 
+     * time, which is used by savePuzzles_recursion(); the fork has no manager
+     * so its undos are not shown in the status
      * @return a ReleaseState
      */    
-    private ReleaseState myclone() {
-        ReleaseState newClone = new ReleaseState(myManager);
-
-        // the class variables specified below will be mutated by the 
-        // saveGame_recursion method
-        
-        newClone.numberOfPawns = numberOfPawns;
-        newClone.bishopPosition = bishopPosition;
-        
-        newClone.pawnPosition = new ArrayList<>();
-        for (int i = 0; i < pawnPosition.size(); i++) { // clone the positions
-            Position pos = pawnPosition.get(i);
-            newClone.pawnPosition.add(pos);
-        }
+    private ReleaseState fork() {
+        ReleaseState newFork = new ReleaseState(null);
 
-        newClone.path = new ArrayList<>();
-        for (int i = 0; i < path.size(); i++) {
-            Position pos = path.get(i);
-            newClone.path.add(pos);
-        }
+        // the board is the only game data; the fork's undos do not change 
+        // this board, they share its moves until one of them moves
+        newFork.board = board.fork();
         
-        return newClone;
+        return newFork;
     }
     
 }
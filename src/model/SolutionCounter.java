@@ -0,0 +1,242 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: SolutionCounter
+ * Description: The SolutionCounter allows the caller to count the capture
+ * orders of a puzzle. The count of a position only depends on the bishop
+ * square and the pawns left, so it is computed once per position (dynamic
+ * programming) and kept in a hashed memo of fixed size. When the memo is
+ * full, the entry with fewer pawns is replaced; the counts stay exact, an
+ * evicted position is only computed again. The memo is valid for every
+ * puzzle, so it is kept between calls.
+ *
+ * The number of positions still grows exponentially with the pawns (a 29
+ * pawn board has billions), so a node limit bounds the time as well. Counts
+ * saturate at Long.MAX_VALUE. With a cap, the count stops as soon as it
+ * reaches the cap, e.g. countUpTo(b, p, 2) tells if a puzzle has exactly one
+ * solution, which is quick on any board. A SolutionCounter is not thread
+ * safe, use one per thread.
+ */
+
+package model;
+
+public class SolutionCounter {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    public static final long unknown = -1; // gave up, node limit reached
+
+    static final int defaultMemoBits = 20; // 1M entries, 20 MB
+
+    static final int lowerBoundFlag = 1 << 7; // the count was capped
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private long nodeLimit = Long.MAX_VALUE; // max nodes per call
+    private long nodes = 0; // positions counted by the last call
+    private boolean isAborted = false; // the node limit was reached
+
+    // memo, 2 entries per bucket: pawn mask, count and a tag holding
+    // bishop + 1 (0 is an empty entry), the lower bound flag and the number
+    // of pawns (bits 8 and up)
+    private final int memoBits;
+    private final long[] memoPawns;
+    private final long[] memoCount;
+    private final int[] memoTag;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a SolutionCounter object
+     * Pre condition: none
+     * Post condition: SolutionCounter object is created with a memo of
+     * 2^20 entries
+     */
+    public SolutionCounter() {
+        this(defaultMemoBits);
+    }
+
+    /**
+     * Description: allow the caller to create a SolutionCounter object
+     * Pre condition: newMemoBits must be between 1 and 28
+     * Post condition: SolutionCounter object is created with a memo of
+     * 2^newMemoBits entries (20 bytes each)
+     * @param newMemoBits specifies the size of the memo
+     */
+    public SolutionCounter(int newMemoBits) {
+        memoBits = newMemoBits;
+        memoPawns = new long[1 << memoBits];
+        memoCount = new long[1 << memoBits];
+        memoTag = new int[1 << memoBits];
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
+    // -----------------------------------------------------------------------
+
+    public void setNodeLimit(long newNodeLimit) {
+        nodeLimit = newNodeLimit;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to count the capture orders of a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return the number of orders in which the bishop can
+     * capture every pawn
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return a long, the count; Long.MAX_VALUE if it does not fit, unknown
+     * if the node limit was reached
+     */
+    public long count(int bishop, long pawns) {
+        return countUpTo(bishop, pawns, Long.MAX_VALUE);
+    }
+
+    /**
+     * Description: allow the caller to count the capture orders up to a cap
+     * Pre condition: bishop is not one of the pawns, cap must be at least 1
+     * Post condition: return the number of orders, or cap if there are at
+     * least cap; stops as soon as cap orders are found
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @param cap specifies the count to stop at
+     * @return a long, the count, at most cap; unknown if the node limit was
+     * reached
+     */
+    public long countUpTo(int bishop, long pawns, long cap) {
+        nodes = 0;
+        isAborted = false;
+
+        // the bishop never leaves its colour
+        if ((pawns & ~Bitboard.sameColour(bishop)) != 0) {
+            return 0;
+        }
+        long total = count(bishop, pawns, cap);
+        return isAborted ? unknown : total;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to count the orders of a position
+     * Pre condition: cap must be at least 1
+     * Post condition: return the count, or cap if there are at least cap;
+     * the result is added to the memo
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawns left
+     * @param cap specifies the count to stop at
+     * @return a long, the count, at most cap
+     */
+    private long count(int bishop, long pawns, long cap) {
+        long targets = Bitboard.diagonals[bishop] & pawns;
+        if ((pawns & (pawns - 1)) == 0) {
+            // zero or one pawn left
+            return (pawns == targets) ? 1 : 0;
+        }
+        if (targets == 0) {
+            return 0;
+        }
+        if (++nodes > nodeLimit) {
+            isAborted = true;
+        }
+        if (isAborted) {
+            return 0;
+        }
+
+        int bucket = hash(bishop, pawns) & ~1;
+        for (int i = bucket; i < bucket + 2; i++) {
+            int tag = memoTag[i];
+            if ((tag & 0x7f) == bishop + 1 && memoPawns[i] == pawns) {
+                long stored = memoCount[i];
+                if ((tag & lowerBoundFlag) == 0 || stored >= cap) {
+                    return Math.min(stored, cap);
+                }
+            }
+        }
+
+        // most positions deep in the tree are dead ends, prove them cheaply
+        if (PuzzleAnalyzer.findProof(bishop, pawns) != PuzzleAnalyzer.noProof) {
+            store(bucket, bishop, pawns, 0, false);
+            return 0;
+        }
+
+        long total = 0;
+        boolean isCapped = false;
+        while (targets != 0) {
+            int square = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            total += count(square, pawns & ~(1L << square), cap - total);
+            if (total >= cap) {
+                // a count below cap is exact, cap itself may be more
+                total = cap;
+                isCapped = true;
+                break;
+            }
+        }
+
+        store(bucket, bishop, pawns, total, isCapped);
+        return total;
+    }
+
+    /**
+     * Description: allow the caller to add a count to the memo
+     * Pre condition: bucket is the first entry of the position's bucket
+     * Post condition: the count replaces the same position, an empty entry
+     * or the entry with fewer pawns, the cheapest to compute again; nothing
+     * is stored once the node limit was reached
+     * @param bucket specifies the first entry of the bucket
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawns left
+     * @param total specifies the count
+     * @param isCapped specifies if the count is only a lower bound
+     */
+    private void store(int bucket, int bishop, long pawns, long total,
+            boolean isCapped) {
+        if (isAborted) {
+            // the count is missing the positions that were not visited
+            return;
+        }
+        int size = Long.bitCount(pawns);
+        int tag = (size << 8) | (isCapped ? lowerBoundFlag : 0) | (bishop + 1);
+
+        int slot = bucket;
+        if ((memoTag[bucket] & 0x7f) == bishop + 1 && memoPawns[bucket] == pawns) {
+            slot = bucket;
+        } else if ((memoTag[bucket + 1] & 0x7f) == bishop + 1
+                && memoPawns[bucket + 1] == pawns) {
+            slot = bucket + 1;
+        } else if ((memoTag[bucket + 1] >>> 8) < (memoTag[bucket] >>> 8)) {
+            slot = bucket + 1;
+        }
+
+        memoPawns[slot] = pawns;
+        memoCount[slot] = total;
+        memoTag[slot] = tag;
+    }
+
+    private int hash(int bishop, long pawns) {
+        long h = (pawns ^ (bishop * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> (64 - memoBits));
+    }
+
+}
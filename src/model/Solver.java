@@ -0,0 +1,227 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: Solver
+ * Description: The Solver allows the caller to find a capture order for a
+ * puzzle, i.e. an order in which the bishop captures every pawn. It is a
+ * depth first search over bitboards that remembers the states known to fail.
+ * A Solver is not thread safe, use one per thread; only cancel() can be
+ * called from another thread.
+ */
+
+package model;
+
+import java.util.Arrays;
+
+public class Solver {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    public static final int unknown = -1; // gave up, node limit reached
+    public static final int unsolvable = 0;
+    public static final int solvable = 1;
+
+    static final int memoBits = 16; // 64K entries of failed states
+    static final int clockMask = 0x3ff; // nodes between two deadline checks
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private long nodeLimit = Long.MAX_VALUE; // max nodes per solve()
+    private long nodes = 0; // nodes visited by the last solve()
+    private long deadline = 0; // System.nanoTime() to give up, 0 for none
+    private volatile boolean isCancelled = false;
+
+    private int[] solution = new int[64]; // capture order, by depth
+    private int solutionLength = 0;
+    private int[][] candidates = new int[65][64]; // move list per depth
+
+    // failed states: occupied mask (pawns + bishop) and a tag of the solve()
+    // generation and bishop square; a collision replaces the old entry, so 
+    // the memo only saves work. Bumping the generation empties the memo.
+    private long[] failedOccupied = new long[1 << memoBits];
+    private int[] failedTag = new int[1 << memoBits];
+    private int generation = 0;
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a Solver object
+     * Pre condition: none
+     * Post condition: Solver object is created with no node limit
+     */
+    public Solver() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Accessor (aka Getter)
+    // -----------------------------------------------------------------------
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Description: allow the caller to get the capture order
+     * Pre condition: the last solve() returned solvable
+     * Post condition: return the squares in capture order
+     * @return an int array, the square index of each capture
+     */
+    public int[] getSolution() {
+        int[] order = new int[solutionLength];
+        System.arraycopy(solution, 0, order, 0, solutionLength);
+        return order;
+    }
+
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
+    // -----------------------------------------------------------------------
+
+    public void setNodeLimit(long newNodeLimit) {
+        nodeLimit = newNodeLimit;
+    }
+
+    /**
+     * Description: allow the caller to set a time limit
+     * Pre condition: none
+     * Post condition: solve() returns unknown once System.nanoTime() passes
+     * newDeadline; it is checked every few thousand nodes
+     * @param newDeadline specifies the deadline, 0 for no time limit
+     */
+    public void setDeadline(long newDeadline) {
+        deadline = newDeadline;
+    }
+
+    /**
+     * Description: allow any thread to stop the running solve()
+     * Pre condition: none
+     * Post condition: the running solve() returns unknown soon, and so does
+     * every solve() until clearCancel() is called
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Description: allow the caller to clear a cancel, when it starts a 
+     * request; solve() does not, so a cancel that comes between the start
+     * of a request and its solve() is not lost
+     * Pre condition: none
+     * Post condition: the next solve() runs normally unless cancel() is 
+     * called again
+     */
+    public void clearCancel() {
+        isCancelled = false;
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to solve a puzzle
+     * Pre condition: bishop is not one of the pawns
+     * Post condition: return if the puzzle can be solved; the capture order
+     * is kept for getSolution()
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawn bitmask
+     * @return solvable, unsolvable or unknown (node limit reached)
+     */
+    public int solve(int bishop, long pawns) {
+        nodes = 0;
+        solutionLength = 0;
+        if (++generation >= (1 << 25)) {
+            generation = 1;
+            Arrays.fill(failedTag, 0);
+        }
+
+        // the bishop never leaves its colour
+        if ((pawns & ~Bitboard.sameColour(bishop)) != 0) {
+            return unsolvable;
+        }
+
+        int result = search(bishop, pawns, 0);
+        if (result == solvable) {
+            solutionLength = Long.bitCount(pawns);
+        }
+        return result;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to search from a state
+     * Pre condition: object must exist
+     * Post condition: solution[depth ...] holds the rest of the capture order
+     * if the state is solvable
+     * @param bishop specifies the bishop square
+     * @param pawns specifies the pawns left
+     * @param depth specifies the number of captures made
+     * @return solvable, unsolvable or unknown
+     */
+    private int search(int bishop, long pawns, int depth) {
+        if (pawns == 0) {
+            return solvable;
+        }
+        if (++nodes > nodeLimit) {
+            return unknown;
+        }
+        if ((nodes & clockMask) == 0 && (isCancelled 
+                || (deadline != 0 && System.nanoTime() - deadline > 0))) {
+            return unknown;
+        }
+
+        long occupied = pawns | (1L << bishop);
+        int slot = hash(occupied, bishop);
+        int tag = (generation << 6) | bishop;
+        if (failedTag[slot] == tag && failedOccupied[slot] == occupied) {
+            return unsolvable;
+        }
+
+        // try the pawns with the fewest next captures first
+        int[] moves = candidates[depth];
+        int count = 0;
+        long targets = Bitboard.diagonals[bishop] & pawns;
+        while (targets != 0) {
+            int square = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            int degree = Long.bitCount(Bitboard.diagonals[square] & pawns);
+            int i = count++;
+            while (i > 0 && (moves[i - 1] >>> 6) > degree) {
+                moves[i] = moves[i - 1];
+                i--;
+            }
+            moves[i] = (degree << 6) | square;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int square = moves[i] & 0x3f;
+            int result = search(square, pawns & ~(1L << square), depth + 1);
+            if (result == solvable) {
+                solution[depth] = square;
+                return solvable;
+            }
+            if (result == unknown) {
+                return unknown;
+            }
+        }
+
+        failedOccupied[slot] = occupied;
+        failedTag[slot] = tag;
+        return unsolvable;
+    }
+
+    private static int hash(long occupied, int bishop) {
+        long h = (occupied ^ (bishop * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> (64 - memoBits));
+    }
+
+}
@@ -7,14 +7,12 @@
 package model;
 
 import controller.Manager;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 
 public class State {
 
@@ -23,22 +21,21 @@ public class State {
     // -----------------------------------------------------------------------
     
     static final int maxLevel = 8; // the max level, 9 total levels
-    static final String statusSpecifier = "Puzzle: %s        Score: %d        # of Clicks / Moves / Undos : %d / %d / %d \n";
+    static final String statusSpecifier = "Puzzle: %s        Score: %d        # of Clicks / Moves / Undos : %d / %d / %d %s\n";
+    static final String deadEndNote = "       DEAD END - undo a move";
+    
+    // held while the index file is read or a save batch is written
+    static final Object datasetLock = new Object();
     
     // -----------------------------------------------------------------------
     // Class Instance Variables
     // -----------------------------------------------------------------------
 
-    int numberOfPawns = 0; // number of pawns
-    ArrayList<Position> pawnPosition; // the pawn positions
-    
-    Position bishopPosition = null;
-    ArrayList<Position> path; // path taken by the bishop
+    // the bishop, the pawns and the moves made
+    Board board = new Board();
     
     // dictionary, stores the pawn number and its max file number 
     Map<Integer, Integer> dict = null;
-                                          
-    char[][] occupiedPosition = new char[8][8]; // the occupied positions
 
     // stats: Clicks/Moves/Undos, counters
     int numberOfClicks = 0;
@@ -46,12 +43,14 @@ public class State {
     int numberOfUndos = 0;
 
     String puzzleFileName = "Unknown";
+    boolean isDeadEnd = false; // the pawns left can not all be captured
     
     // level is zero-index
     int currentLevel = 0; // the current level
     
     // object
     Manager myManager;
+    GameLog gameLog = null; // records the session, null if not recorded
 
     // -----------------------------------------------------------------------
     // Constructor
@@ -76,18 +75,20 @@ public class State {
     /**
      * Description: allow the caller to initialize the game
      * Pre condition: State/object must exist
-     * Post condition: initialize the occupiedPosition, path and 
-     * bishopPosition
+     * Post condition: the board is empty
      */    
     public void initializeGame() {
+        board.clear();
+    }
+
+    /**
+     * Description: allow the caller to pick the next puzzle ahead of 
+     * initializeGame(), e.g. on the I/O thread
+     * Pre condition: State/object must exist
+     * Post condition: the board is not changed; nothing to pick here
+     */    
+    public void prepareGame() {
         
-        for (int y = 0; y < 8; y++) { // initialize occupiedPosition
-            for (int x = 0; x < 8; x++) {
-                occupiedPosition[y][x] = '.';
-            }
-        }        
-        path = new ArrayList<>();
-        bishopPosition = null;
     }
 
     public boolean isValidMove(Position newPos) {
@@ -106,35 +107,112 @@ public class State {
         
     }
     
+    public void redo() {  
+        
+    }
+    
+    /**
+     * Description: allow the caller to go back or forward to any move of the
+     * session, e.g. when a row of the path is clicked
+     * Pre condition: object must exist
+     * Post condition: the board is as it was after ply moves, in constant 
+     * time; going back counts one undo per move, going forward one move per
+     * move, and the later moves can still be redone
+     * @param ply specifies the number of moves made
+     * @return true if the board changed, false otherwise
+     */    
+    public boolean jumpTo(int ply) {
+        int count = board.getMoveCount();
+        if (ply < 0 || ply > board.getHistoryLength() || ply == count) {
+            return false;
+        }
+        
+        board.jumpTo(ply);
+        if (gameLog != null) {
+            gameLog.logJump(ply);
+        }
+        if (ply < count) {
+            numberOfUndos += count - ply;
+        } else {
+            numberOfMoves += ply - count;
+        }
+        updateStatus();
+        return true;
+    }
+    
     // -----------------------------------------------------------------------
     // Accessor (aka Getter)
     // -----------------------------------------------------------------------
     
     public Position getBishopPosition() {
-        return bishopPosition;
+        return board.hasBishop() ? Position.of(board.getBishop()) : null;
     }
     
     public Position getLastPawnPosition() {
-        if (path.size() == 0) {
+        int count = board.getMoveCount();
+        if (count == 0) {
             return null;
         }
         
-        int lastIndex = path.size() - 1;
-        return path.get(lastIndex);
+        return Position.of(MoveStack.from(board.getMove(count - 1)));
     }
     
     public int getNumberOfPawns() {
-        return numberOfPawns;
+        return board.getNumberOfPawns();
+    }
+    
+    public int getMoveCount() {
+        return board.getMoveCount();
+    }
+    
+    /**
+     * Description: allow the caller to get a move made, e.g. to show the path
+     * Pre condition: i must be between 0 and getMoveCount() - 1
+     * Post condition: return the encoded move (see MoveStack)
+     * @param i specifies the index of the move, 0 is the first move
+     * @return the encoded move
+     */
+    public int getMove(int i) {
+        return board.getMove(i);
     }
     
-    public Position getPawnPositionByIndex(int i) {
-        return pawnPosition.get(i);
+    public int getHistoryLength() {
+        return board.getHistoryLength();
+    }
+    
+    /**
+     * Description: allow the caller to get a copy of the board
+     * Pre condition: object must exist
+     * Post condition: return a fork of the board, in constant time; the 
+     * caller can move on it without changing the game
+     * @return a Board
+     */
+    public Board forkBoard() {
+        return board.fork();
     }
     
     public int getCurrentLevel() {
         return currentLevel;
     }
     
+    // -----------------------------------------------------------------------
+    // Mutator (aka Setter)
+    // -----------------------------------------------------------------------
+
+    public void setGameLog(GameLog newGameLog) {
+        gameLog = newGameLog;
+    }
+
+    /**
+     * Description: allow the caller to get the pawns as a bitmask
+     * Pre condition: object must exist
+     * Post condition: return a mask with bit (y * 8 + x) set for every pawn
+     * @return a long, the pawn bitmask
+     */
+    public long getPawnMask() {
+        return board.getPawns();
+    }
+
     // -----------------------------------------------------------------------
     // Public Methods
     // -----------------------------------------------------------------------
@@ -155,34 +233,37 @@ public class State {
         s1 += String.format("current/max: %d/%d %n", currentLevel, maxLevel);
         
         s1 += "--*-- Bishop Position --*--\n";
-        if (bishopPosition != null) {
-            s1 += String.format("%s %n", bishopPosition.toString());
+        if (board.hasBishop()) {
+            s1 += String.format("%s %n", getBishopPosition().toString());
         }
 
         s1 += "--*-- Pawn Position --*--\n";
-        if (pawnPosition != null) {
-            for (int i = 0; i < pawnPosition.size(); i++) {
-                s1 += String.format("%d: %s %n", i, pawnPosition.get(i).toString());
-            }
+        long pawns = board.getPawns();
+        for (int i = 0; pawns != 0; i++) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            s1 += String.format("%d: %s %n", i, Position.of(square).toString());
         }
                 
         s1 += "--*-- Board Position --*--\n";
         for (int y = 0; y < 8; y++) {
             String row = "";
             for (int x = 0; x < 8; x++) {
-                row += Character.toString(occupiedPosition[y][x]) + " ";
+                int square = y * 8 + x;
+                char c = (square == board.getBishop()) ? 'Q' 
+                        : board.isPawn(square) ? 'P' : '.';
+                row += Character.toString(c) + " ";
             }
             s1 += row + "\n";
         }
         
         s1 += "--*-- Pawns Left --*--\n";        
-        s1 += String.format("%d %n", numberOfPawns);
+        s1 += String.format("%d %n", board.getNumberOfPawns());
 
         s1 += "--*-- Path --*--\n";
-        if (path != null) {
-            for (int i = 0; i < path.size(); i++) {
-                s1 += String.format("%d: %s %n", i, path.get(i).toString());
-            }
+        for (int i = 0; i < board.getMoveCount(); i++) {
+            Position from = Position.of(MoveStack.from(board.getMove(i)));
+            s1 += String.format("%d: %s %n", i, from.toString());
         }
         
         s1 += "--*-- Stats --*--\n";        
@@ -198,7 +279,7 @@ public class State {
      * @return true if game is over, false otherwise
      */    
     public boolean isGameOver() {
-        return (numberOfPawns == 0 && pawnPosition != null);
+        return (board.hasBishop() && board.getPawns() == 0);
     }
 
     /**
@@ -208,7 +289,17 @@ public class State {
      * @return true if path is empty, false otherwise
      */    
     public boolean isPathEmpty() {
-        return path.isEmpty();
+        return board.getMoveCount() == 0;
+    }
+    
+    /**
+     * Description: allow the caller to check if a move can be redone
+     * Pre condition: object must exist
+     * Post condition: return a boolean
+     * @return true if an undone move can be redone, false otherwise
+     */    
+    public boolean canRedo() {
+        return board.canRedo();
     }
     
     /**
@@ -221,6 +312,10 @@ public class State {
         System.out.println("INFO: before advanceLevel() " + currentLevel);
         
         if (currentLevel >= maxLevel) {
+            if (gameLog != null) {
+                gameLog.logEnd();
+                gameLog.close();
+            }
             return false;
         }
         currentLevel++;
@@ -228,6 +323,20 @@ public class State {
         return true;
     }
 
+    /**
+     * Description: allow the caller to end the game, e.g. when a new game 
+     * replaces it
+     * Pre condition: object must exist
+     * Post condition: the log is written and closed, no more events are 
+     * logged
+     */    
+    public void endGame() {
+        if (gameLog != null) {
+            gameLog.close();
+            gameLog = null;
+        }
+    }
+
     /**
      * Description: allow the caller to track the number of undos
      * Pre condition: object must exist
@@ -248,6 +357,19 @@ public class State {
         updateStatus();
     }
 
+    /**
+     * Description: allow the caller to track a click that is not a valid move
+     * Pre condition: object must exist
+     * Post condition: increment the clicks counter, log the miss and update 
+     * the status
+     */        
+    public void addInvalidClicks() {
+        if (gameLog != null) {
+            gameLog.logMiss();
+        }
+        addClicks();
+    }
+
     /**
      * Description: allow the caller to track the number of moves
      * Pre condition: object must exist
@@ -277,7 +399,8 @@ public class State {
         String newStatus = String.format(statusSpecifier, 
                 puzzleFileName, 
                 score,
-                numberOfClicks, numberOfMoves, numberOfUndos);
+                numberOfClicks, numberOfMoves, numberOfUndos,
+                isDeadEnd ? deadEndNote : "");
                 
         myManager.updateStatus(newStatus);
     }
@@ -304,36 +427,35 @@ public class State {
             dict = new HashMap<Integer, Integer>();
         }
         
-        try {
-            String file = "./dataset/index.txt";
-            System.out.println(">>> READING FROM FILE " + file);            
+        synchronized (datasetLock) {
+            try {
+                String file = "./dataset/index.txt";
+                System.out.println(">>> READING FROM FILE " + file);            
             
-            FileReader fr = new FileReader(file);
-            Scanner s = new Scanner(fr);
+                ByteBuffer buffer = DatasetParser.readFile(file, null);
+                int[] pair = new int[2];
+                int result;
             
-            String line = "";
-            
-            while(s.hasNextLine()){ // read through the  file
-                line = s.nextLine();
-                if (line.startsWith("#"))
-                    continue;
-                
-                String[] list = line.split(" ", 2);
+                while ((result = DatasetParser.nextPair(buffer, pair))
+                        != DatasetParser.endOfInput) {
+                    if (result == DatasetParser.badLine) {
+                        System.out.println("ERROR: bad line in index file");
+                        continue;
+                    }
 
-                int pawnNumber = Integer.parseInt(list[0]);
-                int fileNumber = Integer.parseInt(list[1]);
+                    int pawnNumber = pair[0];
+                    int fileNumber = pair[1];
                 
-                String s1 = String.format("%d %d", pawnNumber, fileNumber);
-                System.out.println(s1);
+                    String s1 = String.format("%d %d", pawnNumber, fileNumber);
+                    System.out.println(s1);
                 
-                dict.put(pawnNumber, fileNumber);
+                    dict.put(pawnNumber, fileNumber);
+                }
             }
-            
-            s.close();
+            catch (IOException e) {
+                System.out.println("Error reading from file");
+            }        
         }
-        catch (IOException e) {
-            System.out.println("Error reading from file");
-        }        
     }
     
     /**
@@ -0,0 +1,82 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: CountSolutions
+ * Description: command line tool to count the capture orders of every
+ * puzzle in the dataset (see SolutionCounter). The memo is shared by all
+ * puzzles, so the memory used is bounded by its size.
+ *
+ * usage: CountSolutions [dataset directory] [cap] [memo bits] [node limit]
+ *   defaults: ./dataset, no cap, 22 (4M entries, 80 MB) and 200000000
+ *
+ * output: one line per puzzle, file, pawns, count and time; a count of
+ * cap+ means at least cap, max+ means the count does not fit in a long and
+ * unknown means the node limit was reached (try a cap)
+ */
+
+package tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import model.DatasetParser;
+import model.SolutionCounter;
+
+public class CountSolutions {
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        String dataset = args.length > 0 ? args[0] : "./dataset";
+        long cap = args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE;
+        int memoBits = args.length > 2 ? Integer.parseInt(args[2]) : 22;
+        long nodeLimit = args.length > 3 ? Long.parseLong(args[3]) : 200_000_000L;
+
+        File[] files = new File(dataset, "puzzle").listFiles();
+        if (files == null) {
+            System.out.println("ERROR: no puzzle directory in " + dataset);
+            return;
+        }
+        Arrays.sort(files);
+
+        SolutionCounter counter = new SolutionCounter(memoBits);
+        counter.setNodeLimit(nodeLimit);
+        ByteBuffer buffer = null;
+        int[] squares = new int[66];
+        long start = System.nanoTime();
+
+        for (File file : files) {
+            buffer = DatasetParser.readFile(file.getPath(), buffer);
+            int count = DatasetParser.parsePuzzle(buffer, squares);
+            if (count < 1) {
+                System.out.println(String.format("%s invalid", file.getName()));
+                continue;
+            }
+
+            long pawns = 0L;
+            for (int i = 1; i < count; i++) {
+                pawns |= 1L << squares[i];
+            }
+
+            long t = System.nanoTime();
+            long orders = counter.countUpTo(squares[0], pawns, cap);
+            String text = Long.toString(orders);
+            if (orders == SolutionCounter.unknown) {
+                text = "unknown";
+            } else if (orders == Long.MAX_VALUE) {
+                text = "max+";
+            } else if (orders == cap) {
+                text = cap + "+";
+            }
+            System.out.println(String.format("%s %d %s %.3f ms %d nodes",
+                    file.getName(), count - 1, text,
+                    (System.nanoTime() - t) / 1e6, counter.getNodes()));
+        }
+
+        System.out.println(String.format("counted %d files in %.3f s",
+                files.length, (System.nanoTime() - start) / 1e9));
+    }
+
+}
@@ -0,0 +1,287 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: EnumeratePuzzles
+ * Description: command line tool to find every solvable puzzle with up to a
+ * number of pawns, up to symmetry. It works backwards from the endings: a
+ * puzzle with one pawn is solvable if the bishop sees the pawn, and every
+ * release move (see ReleaseState) from a solvable puzzle gives a solvable
+ * puzzle with one more pawn, so the set for n + 1 pawns is the release moves
+ * of the set for n. Puzzles are stored by canonical id (see PuzzleId), each
+ * set is expanded in parallel blocks, and the next set is sorted on disk
+ * (see ExternalSorter), so only the sort buffer is held in memory. At the
+ * end the sets are compared with the dataset.
+ *
+ * usage: EnumeratePuzzles [max pawns] [output directory] [dataset directory]
+ *                         [run size]
+ *   defaults: 8, ./dataset/enum, ./dataset and 8388608 ids (64 MB)
+ *
+ * output: pawns-NN.set per pawn count, a sorted set of the canonical ids
+ * (see PuzzleSet); one line per pawn count with the classes (up to
+ * symmetry), the positions, the release moves made and the time, then the
+ * dataset coverage per pawn count
+ */
+
+package tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import model.Bitboard;
+import model.DatasetParser;
+import model.ExternalSorter;
+import model.PuzzleId;
+import model.PuzzleSet;
+
+public class EnumeratePuzzles {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int blockSize = 1 << 16; // ids expanded per parallel step
+    static final int slices = 64; // parallel tasks per block
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        int maxPawns = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String output = args.length > 1 ? args[1] : "./dataset/enum";
+        String dataset = args.length > 2 ? args[2] : "./dataset";
+        int runSize = args.length > 3 ? Integer.parseInt(args[3])
+                : ExternalSorter.defaultRunSize;
+
+        File dir = new File(output);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("ERROR: can not create " + output);
+            return;
+        }
+        ExternalSorter sorter = new ExternalSorter(dir, runSize);
+        long start = System.nanoTime();
+
+        // one pawn: the bishop sees it
+        long t = System.nanoTime();
+        for (int bishop = 0; bishop < 64; bishop++) {
+            for (long rest = Bitboard.diagonals(bishop); rest != 0; rest &= rest - 1) {
+                sorter.add(PuzzleId.canonical(bishop, rest & -rest));
+            }
+        }
+        report(1, sorter.getAdded(), 0, sorter.finish(getFile(output, 1)),
+                output, t);
+
+        for (int n = 2; n <= maxPawns; n++) {
+            t = System.nanoTime();
+            expand(getFile(output, n - 1), sorter);
+            long moves = sorter.getAdded();
+            int runs = sorter.getRunCount();
+            report(n, moves, runs, sorter.finish(getFile(output, n)), output, t);
+        }
+        System.out.println(String.format("enumerated in %.3f s",
+                (System.nanoTime() - start) / 1e9));
+
+        compare(dataset, output, maxPawns);
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    private static String getFile(String output, int pawns) {
+        return String.format("%s/pawns-%02d.set", output, pawns);
+    }
+
+    /**
+     * Description: allow the caller to make the release moves of a set
+     * Pre condition: from must be a set file
+     * Post condition: the canonical id of every release move of every
+     * puzzle in the set is added to the sorter
+     * @param from specifies the set of puzzles with one pawn less
+     * @param sorter specifies the sorter of the next set
+     * @throws IOException if a file can not be read or written
+     */
+    private static void expand(String from, ExternalSorter sorter)
+            throws IOException {
+        long[] block = new long[blockSize];
+        try (PuzzleSet.Reader reader = new PuzzleSet.Reader(from)) {
+            while (true) {
+                int count = 0;
+                long id;
+                while (count < blockSize && (id = reader.next()) != PuzzleId.noId) {
+                    block[count++] = id;
+                }
+                if (count == 0) {
+                    return;
+                }
+
+                final int size = count;
+                long[][] parts = IntStream.range(0, slices).parallel()
+                        .mapToObj(s -> expandSlice(block,
+                                (int) ((long) s * size / slices),
+                                (int) ((long) (s + 1) * size / slices)))
+                        .toArray(long[][]::new);
+                for (long[] part : parts) {
+                    for (long next : part) {
+                        sorter.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Description: allow a worker to make the release moves of some puzzles
+     * Pre condition: from <= to
+     * Post condition: return the canonical ids of the release moves
+     * @param block specifies the ids
+     * @param from specifies the first index
+     * @param to specifies the index after the last
+     * @return an array of ids, with duplicates
+     */
+    private static long[] expandSlice(long[] block, int from, int to) {
+        long[] out = new long[(to - from) * 13]; // 13 squares seen at most
+        long[] puzzle = new long[2];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            PuzzleId.unrank(block[i], puzzle);
+            int bishop = (int) puzzle[0];
+
+            // the bishop leaves a pawn on its square and moves to a free one
+            long pawns = puzzle[1] | (1L << bishop);
+            for (long rest = Bitboard.diagonals(bishop) & ~pawns; rest != 0;
+                    rest &= rest - 1) {
+                out[count++] = PuzzleId.canonical(
+                        Long.numberOfTrailingZeros(rest), pawns);
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Description: allow the caller to print the line of a pawn count
+     * Pre condition: the set file must be written
+     * Post condition: the classes, positions, moves, runs, size and time
+     * are printed
+     * @throws IOException if the set can not be read
+     */
+    private static void report(int pawns, long moves, int runs, long classes,
+            String output, long start) throws IOException {
+        long positions = 0;
+        long[] puzzle = new long[2];
+        try (PuzzleSet.Reader reader = new PuzzleSet.Reader(getFile(output, pawns))) {
+            long id;
+            while ((id = reader.next()) != PuzzleId.noId) {
+                PuzzleId.unrank(id, puzzle);
+                positions += PuzzleId.getImageCount((int) puzzle[0], puzzle[1]);
+            }
+        }
+        long bytes = new File(getFile(output, pawns)).length();
+        System.out.println(String.format(
+                "%2d pawns: %d classes, %d positions, %d moves, %d runs, %.2f bytes per class, %.3f s",
+                pawns, classes, positions, moves, runs,
+                (double) bytes / Math.max(classes, 1), (System.nanoTime() - start) / 1e9));
+    }
+
+    /**
+     * Description: allow the caller to compare the sets with the dataset
+     * Pre condition: the set files must be written
+     * Post condition: per pawn count, the files listed by the index, the
+     * distinct classes in the files and how many of the solvable classes
+     * they cover are printed; a file that is not in the set is unsolvable
+     * @throws IOException if a file can not be read
+     */
+    private static void compare(String dataset, String output, int maxPawns)
+            throws IOException {
+        File[] files = new File(dataset, "puzzle").listFiles();
+        if (files == null) {
+            System.out.println("ERROR: no puzzle directory in " + dataset);
+            return;
+        }
+
+        // the canonical ids of the dataset by pawn count
+        List<List<Long>> keys = new ArrayList<>();
+        for (int n = 0; n <= maxPawns; n++) {
+            keys.add(new ArrayList<Long>());
+        }
+        ByteBuffer buffer = null;
+        int[] squares = new int[66];
+        for (File file : files) {
+            buffer = DatasetParser.readFile(file.getPath(), buffer);
+            int count = DatasetParser.parsePuzzle(buffer, squares);
+            if (count < 2 || count - 1 > maxPawns) {
+                continue;
+            }
+            long pawns = 0L;
+            for (int i = 1; i < count; i++) {
+                pawns |= 1L << squares[i];
+            }
+            long key = PuzzleId.canonical(squares[0], pawns);
+            if (key != PuzzleId.noId) {
+                keys.get(count - 1).add(key);
+            }
+        }
+
+        Map<Integer, Integer> index = readIndex(dataset + "/index.txt");
+        for (int n = 1; n <= maxPawns; n++) {
+            long[] sorted = keys.get(n).stream().mapToLong(Long::longValue)
+                    .sorted().distinct().toArray();
+
+            // both are sorted, walk them together
+            int covered = 0;
+            long classes;
+            try (PuzzleSet.Reader reader = new PuzzleSet.Reader(getFile(output, n))) {
+                classes = reader.getCount();
+                long id = reader.next();
+                for (long key : sorted) {
+                    while (id != PuzzleId.noId && id < key) {
+                        id = reader.next();
+                    }
+                    if (id == key) {
+                        covered++;
+                    }
+                }
+            }
+
+            Integer listed = index.get(n);
+            System.out.println(String.format(
+                    "%2d pawns: index %d files, %d classes in files, %d solvable, %d unsolvable, coverage %.4f%% of %d",
+                    n, listed == null ? 0 : listed, sorted.length, covered,
+                    sorted.length - covered, 100.0 * covered / Math.max(classes, 1),
+                    classes));
+        }
+    }
+
+    /**
+     * Description: allow the caller to read the index file
+     * Pre condition: none
+     * Post condition: return the max file number per pawn count, empty if
+     * the file can not be read
+     * @param file specifies the index file
+     * @return a map of pawn count to file count
+     */
+    private static Map<Integer, Integer> readIndex(String file) {
+        Map<Integer, Integer> index = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (line.startsWith("#") || fields.length != 2) {
+                    continue;
+                }
+                index.put(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("ERROR: reading " + file);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: GenerateFromSpec
+ * Description: command line tool to make a pack of puzzles to a PuzzleSpec
+ * (see PuzzleGenerator). Each puzzle is printed in the puzzle file format,
+ * with its rating and the time it took; with a save flag the pack is added
+ * to ./dataset by the PuzzleWriter.
+ *
+ * usage: GenerateFromSpec pawns [bishop] [symmetry] [min rating] [count]
+ *                         [required] [forbidden] [save]
+ *   bishop is "x y" or any, symmetry is none, rotation, main or anti,
+ *   required and forbidden are lists of squares, e.g. "0 0,7 7" or -,
+ *   save is save or nosave
+ *   defaults: any, none, 0, 10, -, - and nosave
+ *
+ * output: the puzzles, then the found count and the average and worst time
+ */
+
+package tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import model.Position;
+import model.PuzzleGenerator;
+import model.PuzzleSpec;
+import model.PuzzleWriter;
+
+public class GenerateFromSpec {
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.out.println("ERROR: usage: GenerateFromSpec pawns [bishop] [symmetry] "
+                    + "[min rating] [count] [required] [forbidden] [save]");
+            return;
+        }
+
+        PuzzleSpec spec = new PuzzleSpec(Integer.parseInt(args[0]));
+        if (args.length > 1 && !args[1].equals("any")) {
+            spec.setBishop(Position.parse(args[1]));
+        }
+        if (args.length > 2) {
+            spec.setSymmetry(parseSymmetry(args[2]));
+        }
+        if (args.length > 3) {
+            spec.setMinRating(Integer.parseInt(args[3]));
+        }
+        int count = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        for (Position pos : parseSquares(args.length > 5 ? args[5] : "-")) {
+            spec.require(pos);
+        }
+        for (Position pos : parseSquares(args.length > 6 ? args[6] : "-")) {
+            spec.forbid(pos);
+        }
+        boolean isSaved = args.length > 7 && args[7].equals("save");
+
+        System.out.println("INFO: spec " + spec);
+
+        PuzzleGenerator generator = new PuzzleGenerator(System.nanoTime());
+        List<PuzzleWriter.Puzzle> pack = new ArrayList<>();
+        long[] puzzle = new long[2];
+        long total = 0;
+        long worst = 0;
+
+        for (int i = 0; i < count; i++) {
+            long t = System.nanoTime();
+            boolean isFound = generator.generate(spec, puzzle);
+            t = System.nanoTime() - t;
+            total += t;
+            worst = Math.max(worst, t);
+
+            if (!isFound) {
+                System.out.println(String.format("ERROR: no puzzle found in %.3f ms, %d nodes",
+                        t / 1e6, generator.getNodes()));
+                continue;
+            }
+
+            int bishop = (int) puzzle[0];
+            if (!spec.matches(bishop, puzzle[1])) {
+                System.out.println("ERROR: puzzle does not match the spec");
+            }
+            PuzzleWriter.Puzzle p = new PuzzleWriter.Puzzle(bishop, puzzle[1]);
+            pack.add(p);
+            System.out.print(p.getText());
+            System.out.println(String.format("# rating %d, %.3f ms, %d nodes",
+                    generator.rate(bishop, puzzle[1]), t / 1e6, generator.getNodes()));
+        }
+
+        System.out.println(String.format("found %d of %d, average %.3f ms, worst %.3f ms",
+                pack.size(), count, total / 1e6 / Math.max(count, 1), worst / 1e6));
+
+        if (isSaved && !pack.isEmpty()) {
+            CountDownLatch written = new CountDownLatch(1);
+            PuzzleWriter.getInstance().submit(pack, written::countDown);
+            written.await();
+        }
+        System.exit(0);
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    private static int parseSymmetry(String name) {
+        switch (name) {
+            case "rotation":
+                return PuzzleSpec.rotation;
+            case "main":
+                return PuzzleSpec.mainDiagonal;
+            case "anti":
+                return PuzzleSpec.antiDiagonal;
+            default:
+                return PuzzleSpec.noSymmetry;
+        }
+    }
+
+    private static List<Position> parseSquares(String list) {
+        List<Position> squares = new ArrayList<>();
+        if (!list.equals("-")) {
+            for (String item : list.split(",")) {
+                squares.add(Position.parse(item.trim()));
+            }
+        }
+        return squares;
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: GeneratePuzzles
+ * Description: command line tool to add puzzles with exactly one capture
+ * order to the dataset (see PuzzleGenerator). One generator runs per thread,
+ * each walk fills every pawn count up to its length, and the puzzles are
+ * written by the PuzzleWriter to ./dataset. Unique puzzles get rare above 14
+ * pawns, so the run stops after a time limit even if some counts are short.
+ *
+ * usage: GeneratePuzzles [min pawns] [max pawns] [per count] [threads] [seconds]
+ *   defaults: 4, 16, 10, one per core and 60
+ *
+ * output: the puzzles found per pawn count and the time taken
+ */
+
+package tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import model.PuzzleGenerator;
+import model.PuzzleWriter;
+
+public class GeneratePuzzles {
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws InterruptedException {
+        int minPawns = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int maxPawns = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int perCount = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        long seconds = args.length > 4 ? Long.parseLong(args[4]) : 60;
+
+        if (minPawns < 1 || maxPawns < minPawns || maxPawns > 63) {
+            System.out.println("ERROR: pawns must be between 1 and 63");
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicIntegerArray found = new AtomicIntegerArray(maxPawns + 1);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<PuzzleWriter.Puzzle> accepted = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = start + t;
+            pool.execute(() -> generate(new PuzzleGenerator(seed), minPawns,
+                    maxPawns, perCount, deadline, found, seen, accepted));
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+
+        StringBuilder sb = new StringBuilder();
+        for (int n = minPawns; n <= maxPawns; n++) {
+            sb.append(String.format("%d:%d ", n, found.get(n)));
+        }
+        System.out.println("INFO: unique puzzles per pawn count " + sb.toString().trim());
+
+        if (!accepted.isEmpty()) {
+            CountDownLatch written = new CountDownLatch(1);
+            PuzzleWriter.getInstance().submit(accepted, written::countDown);
+            written.await();
+        }
+        System.out.println(String.format("generated %d puzzles in %.3f s",
+                accepted.size(), (System.nanoTime() - start) / 1e9));
+        System.exit(0);
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow a worker thread to generate puzzles
+     * Pre condition: generator is only used by this thread
+     * Post condition: walks are made until every pawn count has perCount
+     * puzzles or the deadline is reached; new puzzles are added to accepted
+     * @param generator specifies the generator of this thread
+     * @param minPawns specifies the smallest puzzle
+     * @param maxPawns specifies the largest puzzle
+     * @param perCount specifies the puzzles wanted per pawn count
+     * @param deadline specifies the System.nanoTime() to stop at
+     * @param found specifies the puzzles accepted per pawn count
+     * @param seen specifies the puzzles found so far, to drop duplicates
+     * @param accepted specifies the list the puzzles are added to
+     */
+    private static void generate(PuzzleGenerator generator, int minPawns,
+            int maxPawns, int perCount, long deadline, AtomicIntegerArray found,
+            Set<String> seen, List<PuzzleWriter.Puzzle> accepted) {
+        List<PuzzleWriter.Puzzle> puzzles = new ArrayList<>();
+
+        while (System.nanoTime() < deadline) {
+            // aim the walk at the largest count still short
+            int target = maxPawns;
+            while (target >= minPawns && found.get(target) >= perCount) {
+                target--;
+            }
+            if (target < minPawns) {
+                return;
+            }
+
+            puzzles.clear();
+            generator.generate(minPawns, target, puzzles);
+            for (PuzzleWriter.Puzzle puzzle : puzzles) {
+                int n = puzzle.getNumberOfPawns();
+                if (!seen.add(puzzle.getText())) {
+                    continue;
+                }
+                if (found.getAndIncrement(n) >= perCount) {
+                    found.decrementAndGet(n);
+                    continue;
+                }
+                synchronized (accepted) {
+                    accepted.add(puzzle);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: ReplayLog
+ * Description: command line tool to replay the binary game logs and print
+ * the statistics of every session.
+ *
+ * usage: ReplayLog [-r repeat] [file or directory ...]
+ *   the default directory is ./dataset/log, -r replays every log repeat
+ *   times (to measure the replay speed)
+ */
+
+package tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.GameReplay;
+
+public class ReplayLog {
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 1;
+        List<File> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-r") && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else {
+                addFiles(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            addFiles(new File("./dataset/log"), files);
+        }
+
+        // read everything first so only the replay is timed
+        List<byte[]> logs = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            logs.add(Files.readAllBytes(files.get(i).toPath()));
+        }
+
+        GameReplay replay = new GameReplay();
+        long start = System.nanoTime();
+        for (int r = 0; r < repeat; r++) {
+            for (int i = 0; i < logs.size(); i++) {
+                replay.replay(logs.get(i), logs.get(i).length);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (repeat == 1) {
+            List<GameReplay.Session> sessions = replay.getSessions();
+            for (int i = 0; i < sessions.size(); i++) {
+                System.out.println(String.format("session %d: %s", i + 1,
+                        sessions.get(i).toString()));
+            }
+        }
+
+        System.out.println(String.format(
+                "files %d, sessions %d, events %d, rejected moves/undos %d/%d",
+                files.size(), replay.getSessions().size(), replay.getEvents(),
+                replay.getRejectedMoves(), replay.getRejectedUndos()));
+        System.out.println(String.format("replay time %.3f s, %.0f events/s",
+                elapsed / 1e9, replay.getEvents() / Math.max(elapsed / 1e9, 1e-9)));
+    }
+
+    private static void addFiles(File f, List<File> files) {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            for (int i = 0; i < children.length; i++) {
+                addFiles(children[i], files);
+            }
+        } else if (f.isFile()) {
+            files.add(f);
+        }
+    }
+
+}
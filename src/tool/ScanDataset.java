@@ -0,0 +1,335 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: ScanDataset
+ * Description: command line tool to check the puzzle dataset. Every puzzle
+ * file is checked in parallel (format, coordinates, duplicate squares, bishop
+ * on a pawn, pawn count, solvable) and the files are compared with the index.
+ * Unsolvable puzzles are found by the PuzzleAnalyzer first, only the others
+ * are solved. The result is written as a CSV report, one row per problem or
+ * puzzle.
+ *
+ * usage: ScanDataset [dataset directory] [report file]
+ *   defaults: ./dataset and ./dataset/scan-report.csv
+ *
+ * report columns: file,pawns,crc32,status,message,edges,components,leaves,
+ * maxdegree
+ *   status is ok, invalid, unsolvable, unknown (solver gave up), missing
+ *   (listed by the index but no file) or unindexed (file not in the index);
+ *   the graph metrics (see PuzzleAnalyzer) are empty for files not parsed
+ */
+
+package tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import model.DatasetParser;
+import model.PuzzleAnalyzer;
+import model.Solver;
+
+public class ScanDataset {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final long nodeLimit = 2_000_000; // solver budget per puzzle
+
+    // read buffer per thread, reused for every file
+    private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<>();
+
+    private static final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+        @Override
+        protected Solver initialValue() {
+            Solver solver = new Solver();
+            solver.setNodeLimit(nodeLimit);
+            return solver;
+        }
+    };
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        String dataset = args.length > 0 ? args[0] : "./dataset";
+        String report = args.length > 1 ? args[1] : dataset + "/scan-report.csv";
+
+        long start = System.nanoTime();
+
+        File[] files = new File(dataset, "puzzle").listFiles();
+        if (files == null) {
+            System.out.println("ERROR: no puzzle directory in " + dataset);
+            return;
+        }
+        Arrays.sort(files);
+
+        List<Result> results = Arrays.stream(files).parallel()
+                .map(ScanDataset::checkFile)
+                .collect(Collectors.toList());
+
+        List<Result> indexResults = checkIndex(dataset + "/index.txt", results);
+
+        int proved = 0;
+        for (Result r : results) {
+            if (r.analysis != null && r.analysis.isUnsolvable()) {
+                proved++;
+            }
+        }
+
+        int[] counts = new int[Status.values().length];
+        try (PrintWriter pw = new PrintWriter(report, "UTF-8")) {
+            pw.println("file,pawns,crc32,status,message,edges,components,leaves,maxdegree");
+            for (Result r : results) {
+                pw.println(r.toCsv());
+                counts[r.status.ordinal()]++;
+            }
+            for (Result r : indexResults) {
+                pw.println(r.toCsv());
+                counts[r.status.ordinal()]++;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        StringBuilder sb = new StringBuilder();
+        for (Status status : Status.values()) {
+            sb.append(String.format("%s %d  ", status.name().toLowerCase(),
+                    counts[status.ordinal()]));
+        }
+        System.out.println(sb.toString().trim());
+        System.out.println(String.format("%d unsolvable proved without solving",
+                proved));
+        System.out.println(String.format("scanned %d files in %.3f s, report %s",
+                files.length, elapsed / 1e9, report));
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to check a puzzle file
+     * Pre condition: file must exist
+     * Post condition: return the result of the checks, runs on any thread
+     * @param file specifies the puzzle file
+     * @return a Result, the first problem found or ok
+     */
+    private static Result checkFile(File file) {
+        Result r = new Result(file.getName());
+
+        String name = file.getName();
+        if (!isPuzzleName(name)) {
+            return r.set(Status.invalid, "file name is not NN-NNNN.txt");
+        }
+        r.namePawns = Integer.parseInt(name.substring(0, 2));
+        r.fileNumber = Integer.parseInt(name.substring(3, 7));
+
+        ByteBuffer data;
+        try {
+            data = DatasetParser.readFile(file.getPath(), buffers.get());
+            buffers.set(data);
+        } catch (IOException e) {
+            return r.set(Status.invalid, "can not read file");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        r.crc = crc.getValue();
+        data.rewind();
+
+        // parse "x y" lines, lines starting with # are comments
+        int[] xy = new int[2];
+        int bishop = -1;
+        long pawns = 0L;
+        int entry = 0;
+        int result;
+        while ((result = DatasetParser.nextPair(data, xy)) != DatasetParser.endOfInput) {
+            entry++;
+            if (result == DatasetParser.badLine) {
+                return r.set(Status.invalid, "entry " + entry + " is not 'x y'");
+            }
+            if (xy[0] > 7 || xy[1] > 7) {
+                return r.set(Status.invalid, "entry " + entry + " is off the board");
+            }
+
+            int square = xy[1] * 8 + xy[0];
+            if (bishop < 0) {
+                bishop = square;
+            } else if (square == bishop) {
+                return r.set(Status.invalid, "entry " + entry + " pawn on the bishop");
+            } else if ((pawns & (1L << square)) != 0) {
+                return r.set(Status.invalid, "entry " + entry + " square used twice");
+            } else {
+                pawns |= 1L << square;
+            }
+        }
+
+        if (bishop < 0) {
+            return r.set(Status.invalid, "no bishop");
+        }
+        r.pawns = Long.bitCount(pawns);
+        if (r.pawns != r.namePawns) {
+            return r.set(Status.invalid, String.format("%d pawns but file name says %d",
+                    r.pawns, r.namePawns));
+        }
+
+        r.analysis = new PuzzleAnalyzer(bishop, pawns);
+        if (r.analysis.isUnsolvable()) {
+            return r.set(Status.unsolvable, 
+                    PuzzleAnalyzer.getProofName(r.analysis.getProof()));
+        }
+
+        Solver solver = solvers.get();
+        switch (solver.solve(bishop, pawns)) {
+            case Solver.solvable:
+                return r.set(Status.ok, "");
+            case Solver.unsolvable:
+                return r.set(Status.unsolvable, "no capture order");
+            default:
+                return r.set(Status.unknown, "solver gave up after " + nodeLimit + " nodes");
+        }
+    }
+
+    /**
+     * Description: allow the caller to check a puzzle file name
+     * Pre condition: name can not be null
+     * Post condition: return a boolean value
+     * @param name specifies the file name
+     * @return true if the name is NN-NNNN.txt, false otherwise
+     */
+    private static boolean isPuzzleName(String name) {
+        if (name.length() != 11 || name.charAt(2) != '-' || !name.endsWith(".txt")) {
+            return false;
+        }
+        for (int i = 0; i < 7; i++) {
+            char c = name.charAt(i);
+            if (i != 2 && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Description: allow the caller to compare the files with the index
+     * Pre condition: results holds a result for every puzzle file
+     * Post condition: return a result for every file the index expects but is
+     * missing; files the index does not cover are marked unindexed
+     * @param indexFile specifies the index file
+     * @param results specifies the results of the puzzle files
+     * @return a list of results, the missing files
+     */
+    private static List<Result> checkIndex(String indexFile, List<Result> results)
+            throws IOException {
+        Map<Integer, Integer> index = new HashMap<>();
+        ByteBuffer data = DatasetParser.readFile(indexFile, null);
+        int[] pair = new int[2];
+        int result;
+        while ((result = DatasetParser.nextPair(data, pair)) != DatasetParser.endOfInput) {
+            if (result == DatasetParser.lineRead) {
+                index.put(pair[0], pair[1]);
+            }
+        }
+
+        Map<Integer, boolean[]> present = new HashMap<>();
+        for (Result r : results) {
+            if (r.namePawns < 0) {
+                continue;
+            }
+            Integer max = index.get(r.namePawns);
+            if (max == null || r.fileNumber < 1 || r.fileNumber > max) {
+                if (r.status == Status.ok) {
+                    r.set(Status.unindexed, "not covered by the index");
+                }
+                continue;
+            }
+            present.computeIfAbsent(r.namePawns, k -> new boolean[max + 1])[r.fileNumber] = true;
+        }
+
+        List<Result> missing = new ArrayList<>();
+        List<Integer> keys = new ArrayList<>(index.keySet());
+        Collections.sort(keys);
+        for (int pawns : keys) {
+            int max = index.get(pawns);
+            boolean[] seen = present.get(pawns);
+            for (int n = 1; n <= max; n++) {
+                if (seen == null || !seen[n]) {
+                    Result r = new Result(String.format("%02d-%04d.txt", pawns, n));
+                    r.namePawns = pawns;
+                    missing.add(r.set(Status.missing, "listed by the index"));
+                }
+            }
+        }
+        return missing;
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Class
+    // -----------------------------------------------------------------------
+
+    private enum Status { ok, invalid, unsolvable, unknown, missing, unindexed }
+
+    /**
+     * Project Name: POC_Chess_Puzzle
+     * Class Name: Result
+     * Description: the result of checking one file
+     */
+    private static class Result {
+        String file;
+        int namePawns = -1; // pawn count in the file name
+        int fileNumber = -1;
+        int pawns = -1; // pawn count in the file
+        long crc = -1;
+        PuzzleAnalyzer analysis = null; // null if the file was not parsed
+        Status status = Status.ok;
+        String message = "";
+
+        Result(String file) {
+            this.file = file;
+        }
+
+        Result set(Status newStatus, String newMessage) {
+            status = newStatus;
+            message = newMessage;
+            return this;
+        }
+
+        String toCsv() {
+            StringBuilder sb = new StringBuilder(64);
+            sb.append(file).append(',');
+            if (pawns >= 0) {
+                sb.append(pawns);
+            }
+            sb.append(',');
+            if (crc >= 0) {
+                String hex = Long.toHexString(crc);
+                for (int i = hex.length(); i < 8; i++) {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            }
+            sb.append(',').append(status.name()).append(',');
+            sb.append(message.replace(',', ';'));
+            sb.append(',');
+            if (analysis != null) {
+                sb.append(analysis.getEdges()).append(',');
+                sb.append(analysis.getComponents()).append(',');
+                sb.append(analysis.getLeaves()).append(',');
+                sb.append(analysis.getMaxDegree());
+            } else {
+                sb.append(",,,");
+            }
+            return sb.toString();
+        }
+    }
+
+}
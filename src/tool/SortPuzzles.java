@@ -0,0 +1,279 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: SortPuzzles
+ * Description: command line tool to merge any number of puzzles into the
+ * puzzle store (see PuzzleStore), one canonical id per puzzle up to
+ * symmetry, however many there are. The inputs are streamed in blocks; the
+ * canonical ids of a block are found in parallel and handed to the
+ * ExternalSorter, which sorts full buffers on every core and spills them to
+ * run files in the background, then merges the runs and drops the
+ * duplicates. The sort buffers take half of the heap, so 10^9 puzzles sort
+ * in a 2 GB heap with about 16 runs. The store is written next to the
+ * output and moved over it at the end, so the store can be an input too.
+ *
+ * usage: SortPuzzles [output] [run size] [temp directory] [inputs...]
+ *   defaults: ./dataset/store.set, half of the heap (also for 0), the output
+ *   directory and ./dataset/puzzle
+ *   an input is a directory of puzzle files (*.txt), a set file (*.set, see
+ *   PuzzleSet) or a record file (any other name): 9 bytes per puzzle, the
+ *   bishop square then the pawn bitmask as a big endian long
+ *
+ * output: the puzzles read and rejected per input, the distinct puzzles per
+ * pawn count, the runs and the time
+ */
+
+package tool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import model.DatasetParser;
+import model.ExternalSorter;
+import model.PuzzleId;
+import model.PuzzleSet;
+
+public class SortPuzzles {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    static final int blockSize = 1 << 16; // puzzles keyed per parallel step
+    static final int slices = 64; // parallel tasks per block
+    static final int maxRunSize = 1 << 28; // ids per buffer, 2 GB
+
+    // the block being read, shared by the inputs
+    private static final int[] bishops = new int[blockSize];
+    private static final long[] pawns = new long[blockSize];
+    private static final long[] keys = new long[blockSize];
+    private static int size = 0;
+    private static long read = 0;
+    private static long rejected = 0;
+
+    // -----------------------------------------------------------------------
+    // Main
+    // -----------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "./dataset/store.set";
+        int runSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        File outputFile = new File(output).getAbsoluteFile();
+        File tempDir = args.length > 2 ? new File(args[2]) : outputFile.getParentFile();
+        String[] inputs = args.length > 3
+                ? Arrays.copyOfRange(args, 3, args.length)
+                : new String[] {"./dataset/puzzle"};
+
+        if (runSize < 1) {
+            runSize = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, maxRunSize);
+        }
+        if (!tempDir.isDirectory()) {
+            System.out.println("ERROR: no temp directory " + tempDir);
+            return;
+        }
+        System.out.println(String.format("INFO: run size %d ids, %d MB of sort buffers",
+                runSize, 16L * runSize >> 20));
+
+        long start = System.nanoTime();
+        ExternalSorter sorter = new ExternalSorter(tempDir, runSize);
+        for (String input : inputs) {
+            long t = System.nanoTime();
+            long before = read;
+            long rejectedBefore = rejected;
+            File file = new File(input);
+            if (!file.exists()) {
+                System.out.println("ERROR: no input " + input);
+                continue;
+            }
+            if (file.isDirectory()) {
+                readPuzzleFiles(file, sorter);
+            } else if (input.endsWith(".set")) {
+                readSet(input, sorter);
+            } else {
+                readRecords(input, sorter);
+            }
+            flush(sorter);
+            System.out.println(String.format("%s: %d puzzles, %d rejected, %.3f s",
+                    input, read - before, rejected - rejectedBefore,
+                    (System.nanoTime() - t) / 1e9));
+        }
+
+        long t = System.nanoTime();
+        int runs = sorter.getRunCount();
+        File temp = new File(outputFile.getPath() + ".tmp");
+        long count = sorter.finish(temp.getPath());
+        Files.move(temp.toPath(), outputFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        System.out.println(String.format("merged %d runs in %.3f s", runs,
+                (System.nanoTime() - t) / 1e9));
+
+        report(outputFile.getPath());
+        System.out.println(String.format(
+                "sorted %d puzzles into %d, %.2f bytes per puzzle, in %.3f s",
+                read - rejected, count, (double) outputFile.length() / Math.max(count, 1),
+                (System.nanoTime() - start) / 1e9));
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to read a directory of puzzle files
+     * Pre condition: dir must exist
+     * Post condition: every *.txt file that parses is added to the block,
+     * the others are rejected
+     * @throws IOException if the sorter can not write a run
+     */
+    private static void readPuzzleFiles(File dir, ExternalSorter sorter)
+            throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        ByteBuffer buffer = null;
+        int[] squares = new int[66];
+        for (File file : files) {
+            if (!file.getName().endsWith(".txt")) {
+                continue;
+            }
+            int count;
+            try {
+                buffer = DatasetParser.readFile(file.getPath(), buffer);
+                count = DatasetParser.parsePuzzle(buffer, squares);
+            } catch (IOException e) {
+                count = -1;
+            }
+            long mask = 0L;
+            for (int i = 1; i < count; i++) {
+                mask |= 1L << squares[i];
+            }
+            add(count < 1 ? -1 : squares[0], mask, sorter);
+        }
+    }
+
+    /**
+     * Description: allow the caller to read a set file
+     * Pre condition: file must be a set file
+     * Post condition: the puzzle of every id is added to the block
+     * @throws IOException if a file can not be read or written
+     */
+    private static void readSet(String file, ExternalSorter sorter)
+            throws IOException {
+        long[] puzzle = new long[2];
+        try (PuzzleSet.Reader reader = new PuzzleSet.Reader(file)) {
+            long id;
+            while ((id = reader.next()) != PuzzleId.noId) {
+                if (PuzzleId.unrank(id, puzzle)) {
+                    add((int) puzzle[0], puzzle[1], sorter);
+                } else {
+                    add(-1, 0L, sorter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Description: allow the caller to read a record file
+     * Pre condition: file must exist
+     * Post condition: the puzzle of every 9 byte record is added to the
+     * block; a record cut short at the end is rejected
+     * @throws IOException if a file can not be read or written
+     */
+    private static void readRecords(String file, ExternalSorter sorter)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16))) {
+            while (true) {
+                int bishop = in.read();
+                if (bishop < 0) {
+                    return;
+                }
+                long mask;
+                try {
+                    mask = in.readLong();
+                } catch (EOFException e) {
+                    add(-1, 0L, sorter);
+                    return;
+                }
+                add(bishop, mask, sorter);
+            }
+        }
+    }
+
+    /**
+     * Description: allow the caller to add a puzzle to the block
+     * Pre condition: none
+     * Post condition: the puzzle is in the block, a full block is keyed and
+     * handed to the sorter
+     * @param bishop specifies the bishop square, -1 for a bad puzzle
+     * @param mask specifies the pawn bitmask
+     * @throws IOException if the sorter can not write a run
+     */
+    private static void add(int bishop, long mask, ExternalSorter sorter)
+            throws IOException {
+        bishops[size] = bishop;
+        pawns[size] = mask;
+        size++;
+        if (size == blockSize) {
+            flush(sorter);
+        }
+    }
+
+    /**
+     * Description: allow the caller to hand the block to the sorter
+     * Pre condition: none
+     * Post condition: the canonical id of every puzzle of the block is added
+     * to the sorter, a puzzle with no id (off the board, a pawn on the
+     * bishop or on the other colour) is rejected; the block is empty
+     * @throws IOException if the sorter can not write a run
+     */
+    private static void flush(ExternalSorter sorter) throws IOException {
+        final int count = size;
+        IntStream.range(0, slices).parallel().forEach(s -> {
+            int to = (int) ((long) (s + 1) * count / slices);
+            for (int i = (int) ((long) s * count / slices); i < to; i++) {
+                keys[i] = (bishops[i] < 0 || bishops[i] > 63) ? PuzzleId.noId
+                        : PuzzleId.canonical(bishops[i], pawns[i]);
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == PuzzleId.noId) {
+                rejected++;
+            } else {
+                sorter.add(keys[i]);
+            }
+        }
+        read += count;
+        size = 0;
+    }
+
+    /**
+     * Description: allow the caller to print the puzzles per pawn count
+     * Pre condition: file must be a set file
+     * Post condition: one line with the count of every pawn count in the set
+     * @throws IOException if the set can not be read
+     */
+    private static void report(String file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (PuzzleSet.Reader reader = new PuzzleSet.Reader(file)) {
+            long from = 0;
+            for (int n = 0; n <= 31; n++) {
+                long to = reader.lowerBound(PuzzleId.getFirstId(n + 1));
+                if (to > from) {
+                    sb.append(String.format("%d:%d ", n, to - from));
+                }
+                from = to;
+            }
+        }
+        System.out.println("INFO: puzzles per pawn count " + sb.toString().trim());
+    }
+
+}
@@ -0,0 +1,513 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: BoardComponent
+ * Description: BoardComponent paints the whole chess board (squares, pawns and
+ * bishop) in one component and maps mouse clicks to board squares.
+ */
+
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+public class BoardComponent extends JComponent {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    private static final long serialVersionUID = 1L;
+
+    static final int frameDelay = 16; // timer delay in ms, about 60 frames/s
+    static final long baseDuration = 120_000_000L; // ns for any move
+    static final long stepDuration = 25_000_000L; // extra ns per square moved
+    static final Color hintColor = new Color(0, 160, 255);
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private Theme myTheme;
+    private ActionListener listener = null; // receives the clicked square
+
+    // what is shown on the board, bit/square index is y * 8 + x
+    private long pawns = 0L;
+    private int bishop = -1;
+    private int hint = -1; // highlighted square, -1 for none
+
+    // sprites scaled to the current tile size (in device pixels)
+    private BufferedImage pawnSprite = null;
+    private BufferedImage bishopSprite = null;
+    private int spriteSize = -1;
+
+    // bishop animation, positions are in tile units (x, y)
+    private Timer animationTimer;
+    private boolean isAnimating = false;
+    private double fromX, fromY;
+    private long animationStart; // System.nanoTime() when the move started
+    private long animationDuration;
+    private int capturedSquare = -1; // pawn still shown until the bishop lands
+    private Rectangle lastBishopBounds = null; // last painted bishop area
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a BoardComponent object
+     * Pre condition: newTheme can not be null and its assets must be loaded
+     * Post condition: BoardComponent object is created, clicks on the board
+     * are reported to the listener
+     * @param newTheme specifies the Theme object
+     */
+    public BoardComponent(Theme newTheme) {
+        myTheme = newTheme;
+        setOpaque(true);
+        setDoubleBuffered(true);
+        setPreferredSize(new Dimension(600, 600));
+
+        // one timer drives every animation; ticks are coalesced by swing so
+        // a slow frame never queues up more work on the EDT
+        animationTimer = new Timer(frameDelay, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                animationStep();
+            }
+        });
+        animationTimer.setCoalesce(true);
+
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int square = squareAt(e.getX(), e.getY());
+                if (square < 0 || listener == null || !isEnabled()) {
+                    return;
+                }
+                listener.actionPerformed(new ActionEvent(BoardComponent.this,
+                        ActionEvent.ACTION_PERFORMED, String.valueOf(square)));
+            }
+        });
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to set the listener for clicks
+     * Pre condition: object must exist
+     * Post condition: the listener receives an action command holding the
+     * square index (y * 8 + x) of every click on the board
+     * @param newListener specifies the listener
+     */
+    public void setActionListener(ActionListener newListener) {
+        listener = newListener;
+    }
+
+    /**
+     * Description: allow the caller to set the pieces on the board
+     * Pre condition: object must exist
+     * Post condition: only the squares that changed are repainted; a diagonal
+     * bishop move is animated, starting from wherever the bishop is drawn if a
+     * previous animation is still running
+     * @param newPawns specifies the pawn bitmask
+     * @param newBishop specifies the bishop square, -1 if there is no bishop
+     */
+    public void setPieces(long newPawns, int newBishop) {
+        if (newBishop >= 0 && bishop >= 0 && newBishop != bishop
+                && isDiagonal(bishop, newBishop)) {
+            startAnimation(newBishop, pawns);
+        } else if (newBishop != bishop) {
+            stopAnimation();
+        }
+
+        long changed = newPawns ^ pawns;
+        if (newBishop != bishop) {
+            if (bishop >= 0) {
+                changed |= 1L << bishop;
+            }
+            if (newBishop >= 0) {
+                changed |= 1L << newBishop;
+            }
+        }
+
+        pawns = newPawns;
+        bishop = newBishop;
+
+        while (changed != 0) {
+            int square = Long.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            repaintSquare(square);
+        }
+    }
+
+    /**
+     * Description: allow the caller to highlight a square
+     * Pre condition: object must exist
+     * Post condition: only the old and new highlighted squares are repainted
+     * @param newHint specifies the square index, -1 to remove the highlight
+     */
+    public void setHint(int newHint) {
+        if (newHint == hint) {
+            return;
+        }
+        if (hint >= 0) {
+            repaintSquare(hint);
+        }
+        hint = newHint;
+        if (hint >= 0) {
+            repaintSquare(hint);
+        }
+    }
+
+    /**
+     * Description: allow the caller to map a point to a board square
+     * Pre condition: object must exist
+     * Post condition: return the square index under the point
+     * @param px specifies the x coordinate in the component
+     * @param py specifies the y coordinate in the component
+     * @return an integer, the square index (y * 8 + x); -1 if outside the board
+     */
+    public int squareAt(int px, int py) {
+        double tile = getTileSize();
+        if (tile <= 0) {
+            return -1;
+        }
+
+        int x = (int) Math.floor((px - getOriginX()) / tile);
+        int y = (int) Math.floor((py - getOriginY()) / tile);
+        if (x < 0 || x > 7 || y < 0 || y > 7) {
+            return -1;
+        }
+        return y * 8 + x;
+    }
+
+    // -----------------------------------------------------------------------
+    // Protected Methods (Override)
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow swing to paint the board
+     * Pre condition: object must exist
+     * Post condition: paint the squares and pieces inside the clip region
+     * @param g specifies the graphics context
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+
+        g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+
+        double tile = getTileSize();
+        if (tile <= 0) {
+            return;
+        }
+
+        // the device scale factor (HiDPI) decides the sprite resolution
+        AffineTransform at = g2.getTransform();
+        double scale = Math.max(at.getScaleX(), 1.0);
+        updateSprites(tile, scale);
+
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        for (int square = 0; square < 64; square++) {
+            Rectangle r = getSquareBounds(square);
+            if (!r.intersects(clip)) {
+                continue;
+            }
+
+            int x = square % 8;
+            int y = square / 8;
+            if ((x + y) % 2 != 0) {
+                g2.setColor(myTheme.getBoardColorBlack());
+            } else {
+                g2.setColor(myTheme.getBoardColorWhite());
+            }
+            g2.fillRect(r.x, r.y, r.width, r.height);
+
+            if (square == hint) {
+                float width = Math.max(2f, r.width / 16f);
+                g2.setColor(hintColor);
+                g2.setStroke(new BasicStroke(width));
+                g2.drawRect(r.x + (int) width, r.y + (int) width,
+                        r.width - 2 * (int) width, r.height - 2 * (int) width);
+            }
+
+            if (square == bishop) {
+                if (isAnimating && square == capturedSquare) {
+                    drawSprite(g2, pawnSprite, r, scale);
+                } else if (!isAnimating) {
+                    drawSprite(g2, bishopSprite, r, scale);
+                }
+            } else if ((pawns & (1L << square)) != 0) {
+                drawSprite(g2, pawnSprite, r, scale);
+            }
+        }
+
+        // the moving bishop is drawn on top of the squares
+        if (isAnimating) {
+            Rectangle r = getBishopBounds();
+            if (r.intersects(clip)) {
+                drawSprite(g2, bishopSprite, r, scale);
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to get the size of a tile
+     * Pre condition: object must exist
+     * Post condition: return the tile size, the board stays square
+     * @return a double, the tile size in pixels
+     */
+    private double getTileSize() {
+        return Math.min(getWidth(), getHeight()) / 8.0;
+    }
+
+    private double getOriginX() {
+        return (getWidth() - getTileSize() * 8) / 2;
+    }
+
+    private double getOriginY() {
+        return (getHeight() - getTileSize() * 8) / 2;
+    }
+
+    /**
+     * Description: allow the caller to get the bounds of a square
+     * Pre condition: object must exist
+     * Post condition: return the rectangle covered by the square, neighbour
+     * squares share their edges so there are no gaps
+     * @param square specifies the square index
+     * @return a Rectangle, the bounds in component coordinates
+     */
+    private Rectangle getSquareBounds(int square) {
+        double tile = getTileSize();
+        int x = square % 8;
+        int y = square / 8;
+
+        int x0 = (int) Math.round(getOriginX() + x * tile);
+        int y0 = (int) Math.round(getOriginY() + y * tile);
+        int x1 = (int) Math.round(getOriginX() + (x + 1) * tile);
+        int y1 = (int) Math.round(getOriginY() + (y + 1) * tile);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Description: allow the caller to check if two squares are diagonal
+     * Pre condition: both squares must be valid
+     * Post condition: return a boolean value
+     * @param a specifies a square index
+     * @param b specifies another square index
+     * @return true if a and b share a diagonal, false otherwise
+     */
+    private boolean isDiagonal(int a, int b) {
+        return Math.abs(a % 8 - b % 8) == Math.abs(a / 8 - b / 8);
+    }
+
+    /**
+     * Description: allow the caller to start animating the bishop
+     * Pre condition: bishop must still be the old square
+     * Post condition: the bishop glides from where it is drawn now to newBishop
+     * @param newBishop specifies the square the bishop moves to
+     * @param oldPawns specifies the pawns before the move
+     */
+    private void startAnimation(int newBishop, long oldPawns) {
+        // interrupted: continue from the position currently on screen
+        if (isAnimating) {
+            double[] p = getBishopLocation();
+            fromX = p[0];
+            fromY = p[1];
+        } else {
+            fromX = bishop % 8;
+            fromY = bishop / 8;
+        }
+
+        int distance = (int) Math.ceil(Math.max(Math.abs(newBishop % 8 - fromX),
+                Math.abs(newBishop / 8 - fromY)));
+        animationDuration = baseDuration + stepDuration * distance;
+        animationStart = System.nanoTime();
+
+        if ((oldPawns & (1L << newBishop)) != 0) {
+            capturedSquare = newBishop;
+        } else {
+            capturedSquare = -1;
+        }
+
+        isAnimating = true;
+        repaintBishop();
+        if (!animationTimer.isRunning()) {
+            animationTimer.start();
+        }
+    }
+
+    /**
+     * Description: allow the caller to stop the animation
+     * Pre condition: object must exist
+     * Post condition: the bishop is drawn on its square again
+     */
+    private void stopAnimation() {
+        if (!isAnimating) {
+            return;
+        }
+
+        animationTimer.stop();
+        repaintBishop();
+        isAnimating = false;
+        capturedSquare = -1;
+        lastBishopBounds = null;
+        if (bishop >= 0) {
+            repaintSquare(bishop);
+        }
+    }
+
+    /**
+     * Description: allow the timer to advance the animation by one frame
+     * Pre condition: object must exist
+     * Post condition: repaint only the area the bishop leaves and enters
+     */
+    private void animationStep() {
+        if (System.nanoTime() - animationStart >= animationDuration) {
+            stopAnimation();
+            return;
+        }
+        repaintBishop();
+    }
+
+    /**
+     * Description: allow the caller to get where the bishop is drawn
+     * Pre condition: an animation must be running
+     * Post condition: return the interpolated location based on the time
+     * elapsed since the move started (ease-out)
+     * @return a double array, the x and y location in tile units
+     */
+    private double[] getBishopLocation() {
+        double t = (double) (System.nanoTime() - animationStart) / animationDuration;
+        t = Math.max(0.0, Math.min(1.0, t));
+        t = 1 - (1 - t) * (1 - t) * (1 - t);
+
+        double x = fromX + (bishop % 8 - fromX) * t;
+        double y = fromY + (bishop / 8 - fromY) * t;
+        return new double[] {x, y};
+    }
+
+    private Rectangle getBishopBounds() {
+        double tile = getTileSize();
+        double[] p = getBishopLocation();
+        int x0 = (int) Math.floor(getOriginX() + p[0] * tile);
+        int y0 = (int) Math.floor(getOriginY() + p[1] * tile);
+        int size = (int) Math.ceil(tile) + 1;
+        return new Rectangle(x0, y0, size, size);
+    }
+
+    /**
+     * Description: allow the caller to repaint the moving bishop
+     * Pre condition: object must exist
+     * Post condition: the old and new bishop area are repainted
+     */
+    private void repaintBishop() {
+        if (!isAnimating) {
+            return;
+        }
+
+        Rectangle r = getBishopBounds();
+        if (lastBishopBounds != null) {
+            repaint(lastBishopBounds);
+        }
+        repaint(r);
+        lastBishopBounds = r;
+    }
+
+    private void repaintSquare(int square) {
+        Rectangle r = getSquareBounds(square);
+        repaint(r.x, r.y, r.width, r.height);
+    }
+
+    /**
+     * Description: allow the caller to rebuild the cached sprites
+     * Pre condition: the theme assets must be loaded
+     * Post condition: the sprites are scaled to the tile size only when the
+     * tile size or scale factor changed
+     * @param tile specifies the tile size in pixels
+     * @param scale specifies the device scale factor
+     */
+    private void updateSprites(double tile, double scale) {
+        int size = (int) Math.round(tile * 0.8 * scale);
+        if (size == spriteSize || size <= 0) {
+            return;
+        }
+
+        spriteSize = size;
+        pawnSprite = createSprite(myTheme.getPawnIcon(), size);
+        bishopSprite = createSprite(myTheme.getBishopIcon(), size);
+    }
+
+    private BufferedImage createSprite(ImageIcon icon, int size) {
+        if (icon == null || icon.getIconWidth() <= 0) {
+            return null;
+        }
+
+        // keep the aspect ratio of the source image
+        Image img = icon.getImage();
+        double ratio = Math.min((double) size / icon.getIconWidth(),
+                (double) size / icon.getIconHeight());
+        int w = Math.max(1, (int) Math.round(icon.getIconWidth() * ratio));
+        int h = Math.max(1, (int) Math.round(icon.getIconHeight() * ratio));
+
+        BufferedImage sprite = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = sprite.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING,
+                RenderingHints.VALUE_RENDER_QUALITY);
+        g2.drawImage(img, 0, 0, w, h, null);
+        g2.dispose();
+        return sprite;
+    }
+
+    /**
+     * Description: allow the caller to draw a sprite centred in a square
+     * Pre condition: g2 can not be null
+     * Post condition: the sprite is drawn at device resolution
+     * @param g2 specifies the graphics context
+     * @param sprite specifies the sprite, nothing is drawn if null
+     * @param r specifies the square bounds
+     * @param scale specifies the device scale factor
+     */
+    private void drawSprite(Graphics2D g2, BufferedImage sprite, Rectangle r,
+            double scale) {
+        if (sprite == null) {
+            return;
+        }
+
+        double w = sprite.getWidth() / scale;
+        double h = sprite.getHeight() / scale;
+        double x = r.x + (r.width - w) / 2;
+        double y = r.y + (r.height - h) / 2;
+
+        AffineTransform at = AffineTransform.getTranslateInstance(x, y);
+        at.scale(1 / scale, 1 / scale);
+        g2.drawImage(sprite, at, null);
+    }
+
+}
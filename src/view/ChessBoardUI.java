@@ -13,11 +13,16 @@ import javax.swing.UIManager;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Container;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
  
 import java.awt.Dialog;
 import java.awt.GraphicsConfiguration;
@@ -26,17 +31,13 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Insets;
 import java.awt.Toolkit;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 
 import controller.Manager;
 import java.awt.Font;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.Scanner;
 import model.*;
 
 public class ChessBoardUI {
@@ -46,10 +47,10 @@ public class ChessBoardUI {
     // -----------------------------------------------------------------------
     
     JDialog dialog; 
-    DefaultTableModel defaultTableModel; // table used to show path
+    MoveTableModel moveTableModel; // table used to show path
     JLabel labelStatus; // stats
  
-    String[][] scoreArray; // array that stores scores
+    Object[][] scoreArray; // array that stores scores
     
     // -----------------------------------------------------------------------
     // Class Instance Variables (Protected)
@@ -60,11 +61,14 @@ public class ChessBoardUI {
     protected Theme myTheme = null;
     protected State gameState = null;
         
-    protected JButton[][] tiles = new JButton[8][8]; // board is created from buttons
+    protected BoardComponent board; // board is painted by a single component
+    protected MoveHandler moveHandler = null; // receives the clicked squares
+    protected boolean checkGameOver = false; // if true, advance level when solved
     protected String[] mainMenu; // button names for the main menu
     protected ImageIcon[] mainIcon; // button images for the main menu
     
     protected JButton[] level = new JButton[9];
+    protected JButton[] menuButtons; // buttons of the main menu
     
     // -----------------------------------------------------------------------
     // Constructor
@@ -86,15 +90,53 @@ public class ChessBoardUI {
     // Public Methods (Override)
     // -----------------------------------------------------------------------
     
-    public void installHandler() {
-        
-    }
-
     public void initializeLevel() {
         
     }
     
+    /**
+     * Description: allow the caller to undo a move
+     * Pre condition: object must exist, the game state must already be undone
+     * Post condition: repaint the changed tiles, the table drops the last move
+     */    
     public void undo() {
+        int rows = (moveTableModel == null) ? 0 : moveTableModel.getRowCount();
+        renderState(gameState);
+        if (moveTableModel == null || moveTableModel.getRowCount() == rows) {
+            return;
+        }
+
+        // add wav file
+        new AePlayWave(myTheme.soundUndo).start();
+    }   
+    
+    /**
+     * Description: allow the caller to redo a move
+     * Pre condition: object must exist, the game state must already be redone
+     * Post condition: repaint the changed tiles, the table shows the move
+     * again, and check if the level is solved
+     */    
+    public void redo() {
+        renderState(gameState);
+        
+        // add wav file
+        new AePlayWave(myTheme.soundCapture).start();
+        
+        moveHandler.checkLevelSolved();
+    }   
+    
+    /**
+     * Description: allow the caller to show a jump back to an earlier move
+     * Pre condition: object must exist, the game state must already be at 
+     * the earlier move
+     * Post condition: repaint the changed tiles in one pass, the table drops
+     * the undone moves
+     */    
+    public void jumpTo() {
+        renderState(gameState);
+        
+        // add wav file
+        new AePlayWave(myTheme.soundUndo).start();
     }   
     
     // -----------------------------------------------------------------------
@@ -141,6 +183,16 @@ public class ChessBoardUI {
         }
         dialog.setLocation(200, 50);
         dialog.setSize(new Dimension(1000, 800));
+        
+        // the game ends with its window, closed by the player or after the
+        // last level
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                myManager.endGame();
+            }
+        });
        
         Container c = dialog.getContentPane();
         addComponentsToPane(c);
@@ -171,39 +223,49 @@ public class ChessBoardUI {
     /**
      * Description: allow the caller to clear the board
      * Pre condition: object must exist
-     * Post condition: clear the board and remove the action listener 
+     * Post condition: remove the pieces that are currently shown 
      */    
     public void clear() {
-        for (int y = 0; y < tiles.length; y++) {
-            for (int x = 0; x < tiles.length; x++) {
-                JButton btn = tiles[y][x];
-                btn.setIcon(null);
-                for(ActionListener g : btn.getActionListeners()) {
-                    btn.removeActionListener(g);
-                }
-            }
-        }
+        board.setPieces(0L, -1);
     }
     
     /**
      * Description: allow the caller to render the game state
      * Pre condition: object must exist
-     * Post condition: set tiles according to the bishop and pawn position
+     * Post condition: pass the pieces to the board, which repaints only the
+     * squares that changed, and the moves to the path table
      * @param gameState specifies the game's state, used to access the bishop's
-     * position
+     * and pawns' position
      */    
     public void renderState(State gameState) {
         this.gameState = gameState;
 
-        if (gameState.getBishopPosition() == null) {
-            return;
+        long pawns = gameState.getPawnMask();
+        int bishop = -1;
+        Position bishopPos = gameState.getBishopPosition();
+        if (bishopPos != null) {
+            bishop = bishopPos.getIndex();
+            pawns &= ~(1L << bishop);
         }
-        setTiles(gameState.getBishopPosition(), myTheme.getBishopIcon());
         
-        for (int i = 0; i < gameState.getNumberOfPawns(); i++) {
-            setTiles(gameState.getPawnPositionByIndex(i), myTheme.getPawnIcon());
+        board.setPieces(pawns, bishop);
+        board.setHint(-1);
+        
+        // the path is read from the state, one table event per change
+        if (moveTableModel != null) {
+            moveTableModel.update(gameState);
         }
     }   
+    
+    /**
+     * Description: allow the caller to show a hint
+     * Pre condition: object must exist
+     * Post condition: the square is highlighted until the board changes
+     * @param square specifies the square index (y * 8 + x) to capture next
+     */    
+    public void showHint(int square) {
+        board.setHint(square);
+    }
 
     /**
      * Description: allow the caller to advance to the next level
@@ -212,7 +274,40 @@ public class ChessBoardUI {
      * @param i specifies the level to enable
      */    
     public void advanceLevel(int i) {
-        level[i].setEnabled(true);
+        // the endless mode goes past the last level button
+        level[Math.min(i, level.length - 1)].setEnabled(true);
+    }
+    
+    /**
+     * Description: allow the caller to enable or disable the board
+     * Pre condition: object must exist
+     * Post condition: clicks on the board are ignored while it is disabled and
+     * a wait cursor is shown
+     * @param enabled specifies if the board accepts clicks
+     */    
+    public void setBoardEnabled(boolean enabled) {
+        board.setEnabled(enabled);
+        if (enabled) {
+            board.setCursor(Cursor.getDefaultCursor());
+        } else {
+            board.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+    }
+    
+    /**
+     * Description: allow the caller to enable or disable the main menu
+     * Pre condition: object must exist
+     * Post condition: all main menu buttons are enabled or disabled
+     * @param enabled specifies if the buttons can be clicked
+     */    
+    public void setMenuEnabled(boolean enabled) {
+        if (menuButtons == null) {
+            return;
+        }
+        
+        for (int i = 0; i < menuButtons.length; i++) {
+            menuButtons[i].setEnabled(enabled);
+        }
     }
     
     /**
@@ -227,21 +322,6 @@ public class ChessBoardUI {
         labelStatus.setText(newStatus);
     }
     
-    // -----------------------------------------------------------------------
-    // Protected Methods
-    // -----------------------------------------------------------------------
-    
-    /**
-     * Description: allow the caller to set tiles 
-     * Pre condition: the object must exist, icon can not be null
-     * Post condition: tile is set to the icon
-     * @param pos specifies the position in which the icon will be set
-     * @param icon specifies the ImageIcon that will be set
-     */    
-    protected void setTiles(Position pos, ImageIcon icon) {
-        tiles[pos.getY()][pos.getX()].setIcon(icon);
-    }    
-    
     // -----------------------------------------------------------------------
     // Protected Class
     // -----------------------------------------------------------------------   
@@ -250,66 +330,71 @@ public class ChessBoardUI {
      * Project Name: POC_Chess_Puzzle
      * Class Name: MoveHandler
      * Description: The MoveHandler allows the caller to perform actions
-     * based on the command. It is an action listener to handle the moves.
+     * based on the command. It is the action listener of the board; the 
+     * action command is the clicked square index (y * 8 + x).
      */       
     protected class MoveHandler implements ActionListener {
-        Position pos;
-        ImageIcon icon;
-        boolean checkGameOver;
-        
-        
-        public MoveHandler(Position pos, ImageIcon icon, boolean checkGameOver) {
-            this.pos = pos;
-            this.icon = icon;
-            this.checkGameOver = checkGameOver;
-        }
         
         public void actionPerformed(ActionEvent e) {
+            int square = Integer.parseInt(e.getActionCommand());
+            Position pos = Position.of(square);
+            
             String s = String.format("New Position (x,y) = %s", pos.toString());
             System.out.println(s);
 
-            gameState.addClicks();
-           
             if (!gameState.isValidMove(pos)){ 
+                gameState.addInvalidClicks();
+                
                 // add wav file
                 new AePlayWave(myTheme.soundInvalidMove).start();
                 
                 return;
             }
 
+            // a hint for the old position is no longer needed
+            myManager.cancelHint();
+
+            gameState.addClicks();
             gameState.addMoves();
-            
-            if (gameState.getBishopPosition() != null) {
-                setTiles(gameState.getBishopPosition(), icon);
-            }
-            addMove(pos);
-            setTiles(pos, myTheme.getBishopIcon());
 
             gameState.movePosition(pos);
+            renderState(gameState);
             System.out.println(gameState.toString());
 
             // add wav file
             new AePlayWave(myTheme.soundCapture).start();
             
-            if (checkGameOver && gameState.isGameOver()) {
-                clearTable();
-                if (!myManager.advanceNextLevel()) {
-
-                    // add wav file
-                    new AePlayWave(myTheme.soundGameOver).start();
-                    
-                    showScoreDialog();
-                    
-                    // close the UI dialog and go back to main menu ui.
-                    dialog.dispose();
-                }
-                else {
-                    // add wav file
-                    new AePlayWave(myTheme.soundNextLevel).start();
-                }
-            }
+            checkLevelSolved();
         }
         
+        /**
+         * Description: allow the caller to go to the next level when the game 
+         * state is solved
+         * Pre condition: object must exist
+         * Post condition: the next level is loaded, or the score is shown and the
+         * dialog is closed after the last level
+         */    
+        private void checkLevelSolved() {
+            if (!checkGameOver || !gameState.isGameOver()) {
+                return;
+            }
+        
+            if (!myManager.advanceNextLevel()) {
+
+                // add wav file
+                new AePlayWave(myTheme.soundGameOver).start();
+            
+                showScoreDialog();
+            
+                // close the UI dialog and go back to main menu ui.
+                dialog.dispose();
+            }
+            else {
+                // add wav file
+                new AePlayWave(myTheme.soundNextLevel).start();
+            }
+        }
+
         private void showScoreDialog0() {
 
             String s1 = labelStatus.getText();
@@ -349,11 +434,27 @@ public class ChessBoardUI {
             dialog.dispose();
         }
         
+        /**
+         * Description: allow the caller to show the score dialog
+         * Pre condition: object must exist
+         * Post condition: the score file is read on the I/O thread, then the
+         * leaderboard is shown
+         */
         private void showScoreDialog() {
-
-            readScoreFile();
-
-            String statusText = labelStatus.getText();
+            final String statusText = labelStatus.getText();
+            
+            myManager.runInBackground(new Runnable() {
+                public void run() {
+                    readScoreFile();
+                }
+            }, new Runnable() {
+                public void run() {
+                    showScoreTable(statusText);
+                }
+            });
+        }
+        
+        private void showScoreTable(String statusText) {
             String s1 = "";
 
             int i = statusText.indexOf('S');
@@ -392,55 +493,51 @@ public class ChessBoardUI {
     
     /**
      * Description: allow the caller to read the score file
-     * Pre condition: object must exist, scoreArray can not be null, file must 
-     * contain values
-     * Post condition: read through the file and print out its content
+     * Pre condition: object must exist, file must contain values
+     * Post condition: read through the file and print out its content; it is
+     * called on the I/O thread
      */        
     private void readScoreFile() {
         
-        scoreArray = new String[2500][5];
+        Object[][] scoreArray = new Object[2500][5];
         int i = 0;
         
         try {
             String file = "./dataset/score/scorefile.csv";
             System.out.println(">>> READING FROM FILE " + file);            
             
-            FileReader fr = new FileReader(file);
-            Scanner s = new Scanner(fr);
+            ByteBuffer buffer = DatasetParser.readFile(file, null);
+            int[] row = new int[6];
+            int result;
             
-            String line = "";
-            
-            while(s.hasNextLine()){ // read through the file
-                line = s.nextLine();
-                if (line.startsWith("#"))
+            // read through the file
+            while ((result = DatasetParser.nextScore(buffer, row))
+                    != DatasetParser.endOfInput && i < scoreArray.length) {
+                if (result == DatasetParser.badLine) {
+                    System.out.println("ERROR: bad row in score file");
                     continue;
-                
-                String[] list = line.split(",", 5);
+                }
 
-                String name = list[0];
-                String score = list[1];
-                String clicks = list[2];
-                String moves = list[3];
-                String undos = list[4];
+                String name = DatasetParser.decode(buffer, row[0], row[1]);
                 
-                String s1 = String.format("%s %s %s %s %s", 
-                        name, score, clicks, moves, undos);
+                String s1 = String.format("%s %d %d %d %d", 
+                        name, row[2], row[3], row[4], row[5]);
                 System.out.println(s1);
                 
-                scoreArray[i][0] = list[0];
-                scoreArray[i][1] = list[1];
-                scoreArray[i][2] = list[2];
-                scoreArray[i][3] = list[3];
-                scoreArray[i][4] = list[4];
+                scoreArray[i][0] = name;
+                scoreArray[i][1] = row[2];
+                scoreArray[i][2] = row[3];
+                scoreArray[i][3] = row[4];
+                scoreArray[i][4] = row[5];
 
                 ++i;
             }
-            
-            s.close();
         }
         catch (IOException e) {
             System.out.println("Error reading from file");
         }        
+        
+        this.scoreArray = scoreArray;
     }
     
     // -----------------------------------------------------------------------
@@ -476,6 +573,7 @@ public class ChessBoardUI {
 
         //myTheme.undoIcon;
         
+        menuButtons = new JButton[mainMenu.length];
         for (int i = 0; i < mainMenu.length; i++) {
             JButton button;
             button = new JButton(mainMenu[i], mainIcon[i]);
@@ -483,6 +581,7 @@ public class ChessBoardUI {
             panel.add(button);
             //
             button.addActionListener(new MainMenu_Listener());
+            menuButtons[i] = button;
         }
         return panel;
     }  
@@ -490,26 +589,20 @@ public class ChessBoardUI {
     /**
      * Description: allow the caller to create the chess board
      * Pre condition: object must exist
-     * Post condition: create and add JButtons to the tiles array
+     * Post condition: create the board component and its move handler
      * @param none
      * @return none
      */    
     private JPanel createPanel_ChessBoard() {
         JPanel panel = new JPanel();
-        panel.setLayout(new GridLayout(8,8));
-
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                tiles[i][j] = new JButton();
-                
-                if((i + j) % 2 != 0) {
-                    tiles[i][j].setBackground(myTheme.boardColorBlack);
-                } else {
-                    tiles[i][j].setBackground(myTheme.boardColorWhite);
-                }
-                panel.add(tiles[i][j]);               
-            }
-        }
+        panel.setLayout(new BorderLayout());
+        
+        moveHandler = new MoveHandler();
+        
+        board = new BoardComponent(myTheme);
+        board.setActionListener(moveHandler);
+        panel.add(board, BorderLayout.CENTER);
+        
         return panel;
     }    
     
@@ -524,15 +617,25 @@ public class ChessBoardUI {
         JPanel panel = new JPanel();
         //panel.setLayout(new FlowLayout());
 
-        JTable j = new JTable();
+        final JTable j = new JTable();
 
-        // Column Names 
-        String[] columnNames = { "step", "x", "y" }; 
-  
-        defaultTableModel = new DefaultTableModel();
-        defaultTableModel.setColumnIdentifiers(columnNames);
+        // Columns: step, x, y 
+        moveTableModel = new MoveTableModel();
         
-        j.setModel(defaultTableModel);
+        j.setModel(moveTableModel);
+        
+        // click a row to go back to the board after that many moves, the
+        // first row is the start
+        j.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = j.rowAtPoint(e.getPoint());
+                if (row < 0 || gameState == null) {
+                    return;
+                }
+                myManager.jumpTo(row);
+            }
+        });
         
         TableColumnModel columnModel = j.getColumnModel();
         columnModel.getColumn(0).setPreferredWidth(40);
@@ -643,132 +746,6 @@ public class ChessBoardUI {
         pane.add(panel, BorderLayout.LINE_END);
 
     }
-    
-    /**
-     * Description: allow the caller to add a move to the table
-     * Pre condition: the object must exist
-     * Post condition: add the position to the table
-     * @param pos specifies the position to add to the table
-     * @return none
-     */    
-    private void addMove(Position pos) {
-        if (defaultTableModel == null) {
-            return;
-        }
-
-        int step = defaultTableModel.getRowCount() + 1;
-        int x = pos.getX();
-        int y = pos.getY();
-        
-        String[] row = new String[3];
-        row[0] = String.valueOf(step);
-        row[1] = String.valueOf(x);
-        row[2] = String.valueOf(y);
-        
-        defaultTableModel.addRow(row);
-        
-    }
-
-    /**
-     * Description: allow the caller to clear the table
-     * Pre condition: the object must exist
-     * Post condition: all the rows will be removed from the table
-     * @param none
-     * @return none
-     */    
-    private void clearTable() {
-        if (defaultTableModel == null) {
-            return;
-        }
-        
-        System.out.println("row count: " +  defaultTableModel.getRowCount());
-        
-        for (int i = defaultTableModel.getRowCount(); i> 0; i--) {
-            defaultTableModel.removeRow(i-1);
-        }
-    }
-    
-    /**
-     * Description: allow the caller to remove the last move in the table
-     * Pre condition: object must exist
-     * Post condition: the last row in the table will be removed
-     */    
-    protected void undoMove() {
-        if (defaultTableModel == null) {
-            return;
-        }
-
-        // zero-index
-        int i = defaultTableModel.getRowCount() - 1;
-        if (i < 0)
-            return;
-        defaultTableModel.removeRow(i);
-
-        // add wav file
-        new AePlayWave(myTheme.soundUndo).start();
-       
-    }
-    
-    // -----------------------------------------------------------------------
-    // internal, not working
-    // -----------------------------------------------------------------------
-    
-    protected class MouseHandler implements MouseListener {
-        Position pos;
-        Color color;
-        
-        public MouseHandler(Position pos) {
-            this.pos = pos;
-        }
-
-        @Override
-        public void mouseClicked(MouseEvent me) {
-            //throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-
-            if (color != null) {
-                JButton btn = (JButton)me.getSource();
-                btn.setBackground(color);
-                color = null;
-            }
-        }
-
-        @Override
-        public void mousePressed(MouseEvent me) {
-            //throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-        }
-
-        @Override
-        public void mouseReleased(MouseEvent me) {
-            //throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-        }
-
-        @Override
-        public void mouseEntered(MouseEvent me) {
-            String s = String.format("Enter Position (x,y) = %s", pos.toString());
-            System.out.println(s);
-
-            if (!gameState.isValidMove(pos)){ 
-                return;
-            }
-           
-            JButton btn = (JButton)me.getSource();
-            color = btn.getBackground();
-            btn.setBackground(Color.YELLOW);
-        }
-
-        @Override
-        public void mouseExited(MouseEvent me) {
-            String s = String.format("Exit Position (x,y) = %s", pos.toString());
-            System.out.println(s);
-
-            if (color != null) {
-                JButton btn = (JButton)me.getSource();
-                btn.setBackground(color);
-                color = null;
-            }
-        }
-        
-    }
  
 }
 
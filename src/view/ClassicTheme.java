@@ -32,6 +32,8 @@ public class ClassicTheme extends Theme {
         pawnIcon = new ImageIcon("./asset/Chess_pdt60.png");
         bishopIcon = new ImageIcon("./asset/Chess_blt60.png");
         undoIcon = new ImageIcon("./asset/undo.png");
+        redoIcon = new ImageIcon("./asset/redo.png");
+        hintIcon = new ImageIcon("./asset/hint.png");
         saveIcon = new ImageIcon("./asset/save.png");
         
         boardColorBlack = new Color(222, 189, 148);
@@ -11,7 +11,6 @@ import controller.Manager;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.ImageIcon;
-import model.Position;
 
 public class CreatePuzzleUI extends ChessBoardUI{
 
@@ -30,30 +29,15 @@ public class CreatePuzzleUI extends ChessBoardUI{
      */       
     public CreatePuzzleUI(Manager newManager, Theme newTheme) {
         super(newManager, newTheme);
-        mainMenu = new String[] {"undo", "save puzzle"};
-        mainIcon = new ImageIcon[] {myTheme.undoIcon, myTheme.saveIcon};
+        mainMenu = new String[] {"undo", "redo", "save puzzle", "save unique"};
+        mainIcon = new ImageIcon[] {myTheme.undoIcon, myTheme.redoIcon, 
+            myTheme.saveIcon, myTheme.saveIcon};
     }
  
     // -----------------------------------------------------------------------
     // Public Methods (Override)
     // -----------------------------------------------------------------------
     
-    /**
-     * Description: allow the caller to install a handler
-     * Pre condition: object must exist
-     * Post condition: create a handler and add action listener 
-     */    
-    @Override
-    public void installHandler() {
-        for (int y = 0; y < 8; y++) { // install a handler to each tile
-            for (int x = 0; x < 8; x++) {
-                Position pos = new Position(x, y);
-                MoveHandler handler = new MoveHandler(pos, myTheme.getPawnIcon(), false);
-                tiles[y][x].addActionListener(handler);
-            }
-        }
-    } 
- 
     /**
      * Description: allow the caller to initialize the level 
      * Pre condition: object must exist
@@ -64,26 +48,6 @@ public class CreatePuzzleUI extends ChessBoardUI{
         for (int i = 0; i < level.length; i++) {
             level[i].setVisible(false);
         }
-    }   
+    }
     
-    /**
-     * Description: allow the caller to undo a move
-     * Pre condition: object must exist
-     * Post condition: set the tiles back to the previous position
-     */
-    @Override
-    public void undo() {
-        Position bishopPos = gameState.getBishopPosition();
-        Position pawnPos = gameState.getLastPawnPosition();
-
-        if (gameState.getBishopPosition() != null) {
-            //release state 
-            setTiles(gameState.getBishopPosition(), null);
-        }
-        if (pawnPos != null) {
-            setTiles(pawnPos, myTheme.getBishopIcon());
-        }
-        undoMove();        
-    }    
-
 }
@@ -39,6 +39,8 @@ public class KidTheme extends Theme {
         pawnIcon = new ImageIcon("./asset/fish.png");
         bishopIcon = new ImageIcon("./asset/cat.png");
         undoIcon = new ImageIcon("./asset/undo.png");
+        redoIcon = new ImageIcon("./asset/redo.png");
+        hintIcon = new ImageIcon("./asset/hint.png");
         saveIcon = new ImageIcon("./asset/save.png"); 
         
         boardColorBlack = new Color(255, 255, 131);
@@ -77,7 +77,7 @@ public class MenuUI {
 
         //Create and set up the window.
         frame = new JFrame("Chess Menu POC");
-        frame.setPreferredSize(new Dimension(200, 200));
+        frame.setPreferredSize(new Dimension(200, 230));
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         //Set up the content pane.
         addComponentsToPane(frame.getContentPane());
@@ -124,6 +124,13 @@ public class MenuUI {
         //
         button.addActionListener(new MainMenu_Listener());
         
+        button = new JButton("PLAY ENDLESS");
+        button.setAlignmentX(Component.CENTER_ALIGNMENT);
+        button.setAlignmentY(Component.CENTER_ALIGNMENT);
+        pane.add(button);
+        //
+        button.addActionListener(new MainMenu_Listener());
+        
         button = new JButton("LEADERBOARD");
         button.setAlignmentX(Component.CENTER_ALIGNMENT);
         button.setAlignmentY(Component.CENTER_ALIGNMENT);
@@ -144,8 +151,9 @@ public class MenuUI {
      * Pre condition: instance object must exist
      * Post condition: create and show UI
      * @param isForKid specifies if game is played by kid
+     * @param isEndless specifies if the puzzles are made while playing
      */    
-    private void startNewGame(boolean isForKid) {
+    private void startNewGame(boolean isForKid, boolean isEndless) {
         // create the controller
         Manager m = new Manager();
         
@@ -166,7 +174,11 @@ public class MenuUI {
         ui.createAndShowGUI(frame, false);
         
         // start the game
-        m.startNewGame();
+        if (isEndless) {
+            m.startEndlessGame();
+        } else {
+            m.startNewGame();
+        }
         ui.showDialog();
     }
     
@@ -221,10 +233,13 @@ public class MenuUI {
                     createPuzzle();
                     break;
                 case "PLAY GAME (10+)":
-                    startNewGame(false);
+                    startNewGame(false, false);
                     break;
                 case "PLAY GAME (< 10)":
-                    startNewGame(true);
+                    startNewGame(true, false);
+                    break;
+                case "PLAY ENDLESS":
+                    startNewGame(false, true);
                     break;
                 case "LEADERBOARD":
                     //nothing for now
@@ -0,0 +1,155 @@
+/**
+ * Project Name: POC_Chess_Puzzle
+ * Class Name: MoveTableModel
+ * Description: MoveTableModel allows the caller to show the path of the
+ * bishop in a JTable. The first row is the square the bishop starts on
+ * (placed on, in create mode) and row n the square after n moves, so a row
+ * is also the ply to jump to. The rows are read from the move stack of the
+ * game state (see State.getMove()), so the table can not drift from the
+ * board; update() fires one event for whatever changed since the last call.
+ */
+
+package view;
+
+import javax.swing.table.AbstractTableModel;
+import model.MoveStack;
+import model.State;
+
+public class MoveTableModel extends AbstractTableModel {
+
+    // -----------------------------------------------------------------------
+    // Class Static Variables
+    // -----------------------------------------------------------------------
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] columnNames = { "step", "x", "y" };
+
+    // -----------------------------------------------------------------------
+    // Class Instance Variables
+    // -----------------------------------------------------------------------
+
+    private State gameState = null;
+    private int rows = 0; // row count the table was last told about
+
+    // -----------------------------------------------------------------------
+    // Constructor
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to create a MoveTableModel object
+     * Pre condition: none
+     * Post condition: MoveTableModel object is created with no state
+     */
+    public MoveTableModel() {
+
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods (Override)
+    // -----------------------------------------------------------------------
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return Integer.class;
+    }
+
+    /**
+     * Description: allow the table to get the value of a cell
+     * Pre condition: row must be less than the row count
+     * Post condition: return the step, x or y of the square the bishop moved
+     * to, or of the start square
+     * @param row specifies the move
+     * @param column specifies the column (step, x, y)
+     * @return an Integer, values are small so no object is allocated
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        int square = getSquare(row);
+        switch (column) {
+            case 0:
+                return row + 1;
+            case 1:
+                return square % 8;
+            default:
+                return square / 8;
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Public Methods
+    // -----------------------------------------------------------------------
+
+    /**
+     * Description: allow the caller to show the moves of a state
+     * Pre condition: must be called on the Event Dispatch Thread after the
+     * state changed
+     * Post condition: one event is fired: rows inserted or deleted at the
+     * end when only the move count changed, data changed for a new state
+     * @param newState specifies the game state, can be null
+     */
+    public void update(State newState) {
+        int newRows = countRows(newState);
+        if (newState != gameState) {
+            gameState = newState;
+            rows = newRows;
+            fireTableDataChanged();
+        } else if (newRows > rows) {
+            int first = rows;
+            rows = newRows;
+            fireTableRowsInserted(first, newRows - 1);
+        } else if (newRows < rows) {
+            int last = rows - 1;
+            rows = newRows;
+            fireTableRowsDeleted(newRows, last);
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // Private Methods
+    // -----------------------------------------------------------------------
+
+    private int countRows(State state) {
+        if (state == null) {
+            return 0;
+        }
+        // no start row until the bishop is placed
+        if (state.getBishopPosition() == null) {
+            return 0;
+        }
+        return state.getMoveCount() + 1;
+    }
+
+    /**
+     * Description: allow the caller to get the square of a row
+     * Pre condition: row must be less than the row count
+     * Post condition: return the square index (y * 8 + x)
+     * @param row specifies the row
+     * @return an integer, the square
+     */
+    private int getSquare(int row) {
+        if (row == 0) {
+            // where the bishop started, before its first move
+            return gameState.getMoveCount() > 0
+                    ? MoveStack.from(gameState.getMove(0))
+                    : gameState.getBishopPosition().getIndex();
+        }
+        return MoveStack.to(gameState.getMove(row - 1));
+    }
+
+}
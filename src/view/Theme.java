@@ -20,6 +20,8 @@ public abstract class Theme {
     
     // Buttons
     protected ImageIcon undoIcon = null;
+    protected ImageIcon redoIcon = null;
+    protected ImageIcon hintIcon = null;
     protected ImageIcon saveIcon = null;
     
     // Board Colour 